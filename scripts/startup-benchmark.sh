@@ -0,0 +1,49 @@
+#!/usr/bin/env bash
+#
+# Cold start time of the TrelloBranch CLI as a plain jar, with the AppCDS
+# archive and as a native binary, built with
+#   mvn -Pappcds -DskipTests package
+#   mvn -Pnative -DskipTests package
+# Modes whose artifact is missing are skipped.
+#
+# The CLI is pointed at a closed local port by default so that the time is
+# spent starting the JVM and loading classes rather than waiting on Github.
+#
+# Usage: scripts/startup-benchmark.sh [runs] [url]
+
+set -u
+
+RUNS=${1:-20}
+URL=${2:-https://127.0.0.1:1/}
+TARGET=$(cd "$(dirname "$0")/../target" && pwd)
+JAR=$(ls "$TARGET"/trello-branching-*.jar 2>/dev/null | head -1)
+ARCHIVE="$TARGET/trello-branching.jsa"
+NATIVE="$TARGET/trello-branch"
+JAVA=${JAVA:-java}
+
+measure() {
+    local name=$1
+    shift
+    "$@" > /dev/null 2>&1
+    local total=0
+    for _ in $(seq "$RUNS"); do
+        local start end
+        start=$(date +%s%N)
+        "$@" > /dev/null 2>&1
+        end=$(date +%s%N)
+        total=$((total + end - start))
+    done
+    printf '%-10s %6d ms\n' "$name" $((total / RUNS / 1000000))
+}
+
+if [ -n "$JAR" ]; then
+    measure "jar" "$JAVA" -Xshare:auto -jar "$JAR" "$URL"
+    if [ -f "$ARCHIVE" ]; then
+        measure "appcds" "$JAVA" -XX:SharedArchiveFile="$ARCHIVE" -jar "$JAR" "$URL"
+    fi
+else
+    echo "no jar in $TARGET, run mvn -Pappcds -DskipTests package" >&2
+fi
+if [ -x "$NATIVE" ]; then
+    measure "native" "$NATIVE" "$URL"
+fi
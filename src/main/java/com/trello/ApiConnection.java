@@ -1,17 +1,13 @@
 package com.trello;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.concurrent.CancellationException;
 import com.trello.UnrecognizedResponseException;
 
-import org.slf4j.LoggerFactory;
-import org.slf4j.Logger;
-
 import com.google.common.annotations.VisibleForTesting;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
@@ -25,10 +21,13 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @author Shruti Vangari
  *
  */
-public class ApiConnection 
+public class ApiConnection implements ApiFetcher
 {
-	private static final Logger LOGGER = LoggerFactory.getLogger(ApiConnection.class);
+	private static final String REQUEST_METHOD = "GET";
 	private URL apiUrl;
+	private TrafficRecorder recorder;
+	private AsyncAuditLog auditLog;
+	private ByteBufferPool bufferPool;
     
     /**
      * Constructor for testing the mock apiUrl
@@ -40,8 +39,65 @@ public class ApiConnection
      * 
      */
     ApiConnection(URL apiUrl) {
+        this(apiUrl, null);
+    }
+    
+    /**
+     * Constructor for a connection in capture mode
+     *   
+     * @param apiURL URL of the API to connect to.
+     *           This parameter cannot be null or empty
+     * 
+     * @param recorder {@link TrafficRecorder} every exchange is captured to
+     *           A null value disables capture
+     * 
+     */
+    ApiConnection(URL apiUrl, TrafficRecorder recorder) {
+        this(apiUrl, recorder, AsyncAuditLog.shared());
+    }
+    
+    /**
+     * Constructor for a connection with its own audit log
+     *   
+     * @param apiURL URL of the API to connect to.
+     *           This parameter cannot be null or empty
+     * 
+     * @param recorder {@link TrafficRecorder} every exchange is captured to
+     *           A null value disables capture
+     * 
+     * @param auditLog {@link AsyncAuditLog} the outcome of every request is written to
+     *           This parameter cannot be null
+     * 
+     */
+    ApiConnection(URL apiUrl, TrafficRecorder recorder, AsyncAuditLog auditLog) {
+        this(apiUrl, recorder, auditLog, ByteBufferPool.shared());
+    }
+    
+    /**
+     * Constructor for a connection reading bodies into its own pool
+     *   
+     * @param apiURL URL of the API to connect to.
+     *           This parameter cannot be null or empty
+     * 
+     * @param recorder {@link TrafficRecorder} every exchange is captured to
+     *           A null value disables capture
+     * 
+     * @param auditLog {@link AsyncAuditLog} the outcome of every request is written to
+     *           This parameter cannot be null
+     * 
+     * @param bufferPool {@link ByteBufferPool} the bodies are read into
+     *           This parameter cannot be null
+     * 
+     */
+    @VisibleForTesting
+    ApiConnection(URL apiUrl, TrafficRecorder recorder, AsyncAuditLog auditLog, ByteBufferPool bufferPool) {
         checkNotNull(apiUrl, "apiUrl:null");
+        checkNotNull(auditLog, "auditLog:null");
+        checkNotNull(bufferPool, "bufferPool:null");
         this.apiUrl = apiUrl;
+        this.recorder = recorder;
+        this.auditLog = auditLog;
+        this.bufferPool = bufferPool;
     }
     
     /**
@@ -57,31 +113,141 @@ public class ApiConnection
      *  
      */
     public String getApiData() {
+        ApiResponse response = fetch();
+        switch (response.getResponseCode()) {
+            case HTTP_OK:
+                return response.getBody();
+            case HTTP_UNKNOWN:
+                throw new UnrecognizedResponseException("Response Code was not found", null, false);
+            default:
+                return "{}";
+        }
+    }
+    
+    /**
+     * Connects to a RESTful API - Trello or Github
+     * Every response code, including {@link HttpResponseCode#HTTP_UNKNOWN}, is
+     * returned as an {@link ApiResponse} instead of being thrown
+     * 
+     * @return {@link ApiResponse} carrying the response code, the selected headers
+     *         and the JSON data when the response was {@link HttpResponseCode#HTTP_OK}
+     * 
+     * @throws UnrecognizedResponseException
+     *             without a stack trace when there was a problem while connecting to an API,
+     *             the IOException is passed as the cause
+     *  
+     */
+    public ApiResponse fetch() {
+        return fetch(null);
+    }
+    
+    /**
+     * Connects to a RESTful API - Trello or Github, like {@link #fetch()}, in a way
+     * another thread can cancel
+     * 
+     * @param handle {@link RequestHandle} the request can be cancelled through
+     *           A null value makes the request not cancellable
+     * 
+     * @return {@link ApiResponse} carrying the response code, the selected headers
+     *         and the JSON data when the response was {@link HttpResponseCode#HTTP_OK}
+     * 
+     * @throws CancellationException
+     *             when the request was cancelled through the handle
+     * @throws UnrecognizedResponseException
+     *             without a stack trace when there was a problem while connecting to an API,
+     *             the IOException is passed as the cause
+     *  
+     */
+    public ApiResponse fetch(RequestHandle handle) {
+        return fetch(null, handle);
+    }
+    
+    /**
+     * Connects to a RESTful API - Trello or Github, like {@link #fetch(RequestHandle)},
+     * authorized with a credential
+     * 
+     * @param credential {@link Credential} the request is authorized with
+     *           A null value sends the request anonymously
+     * 
+     * @param handle {@link RequestHandle} the request can be cancelled through
+     *           A null value makes the request not cancellable
+     * 
+     * @return {@link ApiResponse} carrying the response code, the selected headers
+     *         and the JSON data when the response was {@link HttpResponseCode#HTTP_OK}
+     * 
+     * @throws CancellationException
+     *             when the request was cancelled through the handle
+     * @throws UnrecognizedResponseException
+     *             without a stack trace when there was a problem while connecting to an API,
+     *             the IOException is passed as the cause
+     *  
+     */
+    @Override
+    public ApiResponse fetch(Credential credential, RequestHandle handle) {
+        return exchange(credential, handle, TO_API_RESPONSE);
+    }
+    
+    /**
+     * Connects to a RESTful API - Trello or Github, like {@link #fetch(Credential, RequestHandle)},
+     * but hands over the body in the pooled buffers it was read into instead of decoding it
+     * 
+     * @param credential {@link Credential} the request is authorized with
+     *           A null value sends the request anonymously
+     * 
+     * @param handle {@link RequestHandle} the request can be cancelled through
+     *           A null value makes the request not cancellable
+     * 
+     * @return {@link ResponseBody} carrying the response code and the JSON data when the
+     *         response was {@link HttpResponseCode#HTTP_OK}, it must be released by the caller
+     * 
+     * @throws CancellationException
+     *             when the request was cancelled through the handle
+     * @throws UnrecognizedResponseException
+     *             without a stack trace when there was a problem while connecting to an API,
+     *             the IOException is passed as the cause
+     *  
+     */
+    public ResponseBody fetchBody(Credential credential, RequestHandle handle) {
+        return exchange(credential, handle, TO_RESPONSE_BODY);
+    }
+    
+    private <T> T exchange(Credential credential, RequestHandle handle, ResponseHandler<T> handler) {
         HttpURLConnection connection = null;
+        ResponseBody body = null;
+        long startNanos = System.nanoTime();
         try {
-            connection = (HttpURLConnection) apiUrl.openConnection();
-            connection.setRequestMethod("GET");
-            HttpResponseCode httpResponseCode = getResponseCode(connection); 
-            switch (httpResponseCode) {
-                case HTTP_OK:
-                    LOGGER.info("Successful connection to : {} , code : {} , message : {} , ",
-                            apiUrl, httpResponseCode.getCode(), httpResponseCode.getMessage());
-                    LOGGER.info("Successfully read data from the api");
-                    return readOutputFromApi(connection);
-                case HTTP_UNKNOWN:
-                    LOGGER.warn("Unsuccessful connection to : {} , error code : {} , error message : {}",
-                            apiUrl, httpResponseCode.getCode(), httpResponseCode.getMessage());
-                    throw new UnrecognizedResponseException("Response Code was not found");
-                default:
-                    LOGGER.warn(
-                            "Unsuccessful connection to : {} , error code : {} , error message : {}",
-                            apiUrl, httpResponseCode.getCode(), httpResponseCode.getMessage());
-                    return "{}";
+            URL url = credential == null ? apiUrl : credential.authorize(apiUrl);
+            connection = (HttpURLConnection) url.openConnection();
+            if (handle != null && !handle.attach(connection)) {
+                throw new CancellationException("Request was cancelled");
             }
+            connection.setRequestMethod(REQUEST_METHOD);
+            if (credential != null) {
+                credential.authorize(connection);
+            }
+            HttpResponseCode httpResponseCode = getResponseCode(connection);
+            body = ResponseBody.empty(httpResponseCode);
+            if (httpResponseCode == HttpResponseCode.HTTP_OK) {
+                body = readOutputFromApi(connection, httpResponseCode);
+                auditLog.success(apiUrl, httpResponseCode);
+            } else {
+                auditLog.failure(apiUrl, httpResponseCode);
+            }
+            record(connection, httpResponseCode, body, startNanos);
+            ResponseBody handedOver = body;
+            body = null;
+            return handler.handle(httpResponseCode, connection, handedOver);
         } catch (IOException e) {
-            LOGGER.error("The URL passed {} is not valid : {} ", apiUrl, e);
-            throw new UnrecognizedResponseException("Response Code was not found", e);
+            if (handle != null && handle.isCancelled()) {
+                throw new CancellationException("Request was cancelled");
+            }
+            auditLog.error(apiUrl, e);
+            throw new UnrecognizedResponseException("Response Code was not found", e, false);
         } finally {
+            // the buffers go back to the pool unless the handler took them over
+            if (body != null) {
+                body.release();
+            }
             if (connection != null) {
                 connection.disconnect();
             }
@@ -107,24 +273,118 @@ public class ApiConnection
      * @param connection
      *            of type {@link HttpURLConnection}
      * 
-     * @return JSON data in string format The output data could be empty {} if
+     * @param httpResponseCode
+     *            {@link HttpResponseCode} returned by the API
+     * 
+     * @return JSON data in pooled buffers The output data could be empty {} if
      *         there is no JSON data for the given API
      * 
      * @throws IOException
      *             if the output from the API cannot be read
      * 
      */
-    private String readOutputFromApi(HttpURLConnection connection) throws IOException {
-        BufferedReader reader = null;
+    private ResponseBody readOutputFromApi(HttpURLConnection connection, HttpResponseCode httpResponseCode)
+            throws IOException {
+        InputStream stream = null;
+        try {
+            stream = connection.getInputStream();
+            return ResponseBody.read(httpResponseCode, stream, bufferPool, connection.getContentLengthLong());
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+    
+    /**
+     * @param connection
+     *            of type {@link HttpURLConnection}
+     * 
+     * @param httpResponseCode
+     *            {@link HttpResponseCode} returned by the API, other than
+     *            {@link HttpResponseCode#HTTP_OK}
+     * 
+     * @return the body of an error or any other response in pooled buffers,
+     *         empty if the response has none
+     * 
+     * @throws IOException
+     *             if the body cannot be read
+     * 
+     */
+    private ResponseBody readErrorFromApi(HttpURLConnection connection, HttpResponseCode httpResponseCode)
+            throws IOException {
+        InputStream stream = null;
         try {
-            InputStream stream = connection.getInputStream();
-            InputStreamReader streamReader = new InputStreamReader(stream);
-            reader = new BufferedReader(streamReader);
-            return reader.readLine();
+            stream = connection.getResponseCode() >= HttpURLConnection.HTTP_BAD_REQUEST ? connection.getErrorStream()
+                    : connection.getInputStream();
+            if (stream == null) {
+                return ResponseBody.empty(httpResponseCode);
+            }
+            return ResponseBody.read(httpResponseCode, stream, bufferPool, connection.getContentLengthLong());
         } finally {
-                closeQuietly(reader);
+            closeQuietly(stream);
         }
     }
+    
+    /**
+     * Captures the exchange when the connection is in capture mode, with the
+     * body of a response other than {@link HttpResponseCode#HTTP_OK} read for
+     * the recording only so that errors and rate limits replay faithfully
+     * 
+     * @param connection
+     *            {@link HttpURLConnection} the response was read from
+     * @param httpResponseCode
+     *            {@link HttpResponseCode} returned by the API
+     * @param body
+     *            body read from the API, empty if it was not read
+     * @param startNanos
+     *            {@link System#nanoTime()} when the request started
+     * 
+     * @throws IOException
+     *             if the response code cannot be read
+     * 
+     */
+    private void record(HttpURLConnection connection, HttpResponseCode httpResponseCode, ResponseBody body,
+            long startNanos) throws IOException {
+        if (recorder == null) {
+            return;
+        }
+        ResponseBody recorded = httpResponseCode == HttpResponseCode.HTTP_OK ? body
+                : readErrorFromApi(connection, httpResponseCode);
+        try {
+            recorder.record(REQUEST_METHOD, apiUrl.toString(), connection.getResponseCode(),
+                    connection.getHeaderFields(), recorded.toByteArray(), startNanos, System.nanoTime() - startNanos);
+        } finally {
+            if (recorded != body) {
+                recorded.release();
+            }
+        }
+    }
+    
+    /**
+     * Turns what was read from the API into the result of a request, called
+     * before the connection is disconnected. The handler owns the body it is
+     * handed and releases it unless it returns it.
+     */
+    private interface ResponseHandler<T> {
+        T handle(HttpResponseCode httpResponseCode, HttpURLConnection connection, ResponseBody body);
+    }
+    
+    private static final ResponseHandler<ApiResponse> TO_API_RESPONSE = new ResponseHandler<ApiResponse>() {
+        @Override
+        public ApiResponse handle(HttpResponseCode httpResponseCode, HttpURLConnection connection, ResponseBody body) {
+            try {
+                return ApiResponse.from(httpResponseCode, connection, body.asString());
+            } finally {
+                body.release();
+            }
+        }
+    };
+    
+    private static final ResponseHandler<ResponseBody> TO_RESPONSE_BODY = new ResponseHandler<ResponseBody>() {
+        @Override
+        public ResponseBody handle(HttpResponseCode httpResponseCode, HttpURLConnection connection, ResponseBody body) {
+            return body;
+        }
+    };
 	
 }
 
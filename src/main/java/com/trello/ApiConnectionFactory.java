@@ -2,11 +2,14 @@ package com.trello;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.net.InetAddresses;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -24,12 +27,20 @@ public enum ApiConnectionFactory {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ApiConnectionFactory.class);
 
+	private final ConcurrentMap<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<String, ConcurrencyLimiter>();
+	private final ConcurrentMap<String, CredentialPool> credentialPools = new ConcurrentHashMap<String, CredentialPool>();
+
 	/**
 	 * Validates a string and creates a new URL if it is a valid string
 	 * 
+	 * Plain http:// is only accepted for the loopback interface, so that a
+	 * connection can be pointed at a {@link ReplayServer} through
+	 * {@link ReplayServer#replayUrl(String)}
+	 * 
 	 * @param inputUrl
 	 *            The URL input as a string to be validated Cannot be null or
 	 *            blank or empty Should begin with UrlPrepender https://
+	 *            or http:// followed by a loopback address
 	 * 
 	 * @return a {@link URL}
 	 * 
@@ -41,8 +52,8 @@ public enum ApiConnectionFactory {
 	URL validateInputUrl(String inputUrl) {
 		checkNotNull(inputUrl, "inputUrl:null");
 		checkArgument(!inputUrl.trim().isEmpty(), "inputUrl:blank");
-		checkArgument(inputUrl.startsWith("https://"),"inputUrl:invalid");
-		LOGGER.info("The inputUrl {} is valid", inputUrl);
+		checkArgument(inputUrl.startsWith("https://") || isLoopbackHttp(inputUrl), "inputUrl:invalid");
+		LOGGER.debug("The inputUrl {} is valid", inputUrl);
 		try {
 			return new URL(inputUrl);
 		} catch (MalformedURLException e) {
@@ -51,6 +62,27 @@ public enum ApiConnectionFactory {
 		}
 	}
 
+	/**
+	 * @return true when the URL is plain http:// to a literal loopback
+	 *         address or localhost, no name is resolved
+	 */
+	private static boolean isLoopbackHttp(String inputUrl) {
+		if (!inputUrl.startsWith("http://")) {
+			return false;
+		}
+		String host;
+		try {
+			host = new URL(inputUrl).getHost();
+		} catch (MalformedURLException e) {
+			return false;
+		}
+		if (host.startsWith("[") && host.endsWith("]")) {
+			host = host.substring(1, host.length() - 1);
+		}
+		return "localhost".equalsIgnoreCase(host)
+				|| (InetAddresses.isInetAddress(host) && InetAddresses.forString(host).isLoopbackAddress());
+	}
+
 	/**
 	 * @param inputUrl
 	 *            The URL input as a string to be validated Cannot be null or
@@ -66,4 +98,67 @@ public enum ApiConnectionFactory {
 		return new ApiConnection(validateInputUrl(inputUrl));
 	}
 
+	/**
+	 * @param inputUrl
+	 *            The URL input as a string to be validated Cannot be null or
+	 *            blank or empty Should begin with UrlPrepender https://
+	 * 
+	 * @param recorder
+	 *            {@link TrafficRecorder} every exchange of the connection is
+	 *            captured to Cannot be null
+	 * 
+	 * @return a {@link ApiConnection} instance in capture mode
+	 * 
+	 * @throws IllegalStateException
+	 *             If a URL could not be created from the given string input
+	 * 
+	 */
+	public ApiConnection createApiConnection(String inputUrl, TrafficRecorder recorder) {
+		checkNotNull(recorder, "recorder:null");
+		return new ApiConnection(validateInputUrl(inputUrl), recorder);
+	}
+
+	/**
+	 * @param host
+	 *            The host the requests are made to Eg: api.github.com
+	 *            Cannot be null
+	 * 
+	 * @return the {@link ConcurrencyLimiter} shared by every request to the host
+	 * 
+	 */
+	public ConcurrencyLimiter getConcurrencyLimiter(String host) {
+		checkNotNull(host, "host:null");
+		ConcurrencyLimiter limiter = limiters.get(host);
+		if (limiter == null) {
+			ConcurrencyLimiter created = new ConcurrencyLimiter(host);
+			limiter = limiters.putIfAbsent(host, created);
+			if (limiter == null) {
+				limiter = created;
+			}
+		}
+		return limiter;
+	}
+
+	/**
+	 * @param host
+	 *            The host the requests are made to Eg: api.github.com
+	 *            Cannot be null
+	 * 
+	 * @return the {@link CredentialPool} shared by every request to the host,
+	 *         empty until credentials are added to it
+	 * 
+	 */
+	public CredentialPool getCredentialPool(String host) {
+		checkNotNull(host, "host:null");
+		CredentialPool pool = credentialPools.get(host);
+		if (pool == null) {
+			CredentialPool created = new CredentialPool(host);
+			pool = credentialPools.putIfAbsent(host, created);
+			if (pool == null) {
+				pool = created;
+			}
+		}
+		return pool;
+	}
+
 }
@@ -0,0 +1,40 @@
+package com.trello;
+
+/**
+ * Single entry point every request to an API goes through, so that the
+ * policies applied to requests can be stacked in front of an {@link ApiConnection}
+ *
+ * {@link CredentialPool}, {@link HedgedRequestExecutor} and
+ * {@link ConcurrencyLimiter} each wrap a fetcher into another one. They are
+ * stacked with the credential chosen first, each copy of a hedged request
+ * counted against the limit, and the {@link RequestScheduler} in front of
+ * all of them, eg:
+ *
+ * <pre>
+ * ApiFetcher fetcher = pool.wrap(hedged.wrap(limiter.wrap(connection)));
+ * Future&lt;ApiResponse&gt; response = scheduler.submit(Priority.INTERACTIVE, boardId, fetcher);
+ * </pre>
+ *
+ * @author Shruti Vangari
+ *
+ */
+public interface ApiFetcher {
+
+    /**
+     * @param credential
+     *            {@link Credential} the request is authorized with, null to
+     *            send it anonymously or let a {@link CredentialPool} choose
+     * @param handle
+     *            {@link RequestHandle} the request can be cancelled through,
+     *            null if it is not cancellable
+     *
+     * @return {@link ApiResponse} of the request
+     *
+     * @throws java.util.concurrent.CancellationException
+     *             when the request was cancelled through the handle
+     * @throws UnrecognizedResponseException
+     *             when there was a problem while connecting to the API
+     */
+    ApiResponse fetch(Credential credential, RequestHandle handle);
+
+}
@@ -0,0 +1,184 @@
+package com.trello;
+
+import java.net.HttpURLConnection;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Typed outcome of a request made through {@link ApiConnection#fetch()}
+ *
+ * Carries the {@link HttpResponseCode}, the headers needed to pace and cache
+ * requests and the body of a successful response. Responses without a body
+ * or any of the selected headers, such as a plain 404 for a missing branch,
+ * are shared instances so that existence probes do not allocate.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class ApiResponse {
+
+    static final String ETAG = "ETag";
+    static final String RETRY_AFTER = "Retry-After";
+    static final String RATE_LIMIT_REMAINING = "X-RateLimit-Remaining";
+    static final String RATE_LIMIT_RESET = "X-RateLimit-Reset";
+    static final String TRELLO_RATE_LIMIT_REMAINING = "x-rate-limit-api-token-remaining";
+    static final String TRELLO_RATE_LIMIT_INTERVAL = "x-rate-limit-api-token-interval-ms";
+
+    /**
+     * Value of the numeric fields when the header was not sent
+     */
+    public static final long UNKNOWN = -1L;
+
+    private static final Map<HttpResponseCode, ApiResponse> EMPTY_RESPONSES = emptyResponses();
+
+    private final HttpResponseCode responseCode;
+    private final String body;
+    private final String etag;
+    private final long retryAfterSeconds;
+    private final long rateLimitRemaining;
+    private final long rateLimitReset;
+    private final long rateLimitIntervalMillis;
+
+    private ApiResponse(HttpResponseCode responseCode, String body, String etag, long retryAfterSeconds,
+            long rateLimitRemaining, long rateLimitReset, long rateLimitIntervalMillis) {
+        this.responseCode = responseCode;
+        this.body = body;
+        this.etag = etag;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.rateLimitRemaining = rateLimitRemaining;
+        this.rateLimitReset = rateLimitReset;
+        this.rateLimitIntervalMillis = rateLimitIntervalMillis;
+    }
+
+    private static Map<HttpResponseCode, ApiResponse> emptyResponses() {
+        Map<HttpResponseCode, ApiResponse> responses = new EnumMap<HttpResponseCode, ApiResponse>(HttpResponseCode.class);
+        for (HttpResponseCode code : HttpResponseCode.values()) {
+            responses.put(code, new ApiResponse(code, "", null, UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN));
+        }
+        return responses;
+    }
+
+    /**
+     * @param responseCode
+     *            {@link HttpResponseCode} of the response
+     *
+     * @return a shared response without body or headers
+     */
+    public static ApiResponse of(HttpResponseCode responseCode) {
+        return EMPTY_RESPONSES.get(checkNotNull(responseCode, "responseCode:null"));
+    }
+
+    /**
+     * Reads the selected headers from a connection that has already been answered
+     *
+     * Github sends the remaining requests with the reset time of the window,
+     * Trello sends them per token with the length of its rolling window.
+     *
+     * @param responseCode
+     *            {@link HttpResponseCode} of the response
+     * @param connection
+     *            {@link HttpURLConnection} the response was received on
+     * @param body
+     *            body read from the connection, empty if it was not read
+     *
+     * @return the response, a shared instance when there is nothing to carry
+     */
+    static ApiResponse from(HttpResponseCode responseCode, HttpURLConnection connection, String body) {
+        String etag = connection.getHeaderField(ETAG);
+        long retryAfterSeconds = parseLong(connection.getHeaderField(RETRY_AFTER));
+        long rateLimitRemaining = parseLong(connection.getHeaderField(RATE_LIMIT_REMAINING));
+        long rateLimitReset = parseLong(connection.getHeaderField(RATE_LIMIT_RESET));
+        long rateLimitIntervalMillis = UNKNOWN;
+        if (rateLimitRemaining == UNKNOWN) {
+            rateLimitRemaining = parseLong(connection.getHeaderField(TRELLO_RATE_LIMIT_REMAINING));
+            rateLimitIntervalMillis = parseLong(connection.getHeaderField(TRELLO_RATE_LIMIT_INTERVAL));
+        }
+        if (body.isEmpty() && etag == null && retryAfterSeconds == UNKNOWN && rateLimitRemaining == UNKNOWN
+                && rateLimitReset == UNKNOWN && rateLimitIntervalMillis == UNKNOWN) {
+            return of(responseCode);
+        }
+        return new ApiResponse(responseCode, body, etag, retryAfterSeconds, rateLimitRemaining, rateLimitReset,
+                rateLimitIntervalMillis);
+    }
+
+    /**
+     * Parses a non negative header value without throwing, Retry-After sent as
+     * a HTTP date is treated as unknown
+     */
+    private static long parseLong(String value) {
+        if (value == null || value.isEmpty() || value.length() > 18) {
+            return UNKNOWN;
+        }
+        long result = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return UNKNOWN;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /**
+     * @return {@link HttpResponseCode} of the response,
+     *         {@link HttpResponseCode#HTTP_UNKNOWN} when the code was not recognized
+     */
+    public HttpResponseCode getResponseCode() {
+        return responseCode;
+    }
+
+    /**
+     * @return true when the API answered with {@link HttpResponseCode#HTTP_OK}
+     */
+    public boolean isOk() {
+        return responseCode == HttpResponseCode.HTTP_OK;
+    }
+
+    /**
+     * @return JSON data in string format, empty when the response was not
+     *         {@link HttpResponseCode#HTTP_OK}
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * @return the ETag header or null when it was not sent
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * @return seconds to wait before retrying, {@link #UNKNOWN} when not sent
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * @return requests left in the current rate limit window, {@link #UNKNOWN} when not sent
+     */
+    public long getRateLimitRemaining() {
+        return rateLimitRemaining;
+    }
+
+    /**
+     * @return epoch second the rate limit window resets at, {@link #UNKNOWN} when not sent
+     */
+    public long getRateLimitReset() {
+        return rateLimitReset;
+    }
+
+    /**
+     * @return length in milliseconds of the rolling rate limit window of
+     *         Trello, {@link #UNKNOWN} when not sent
+     */
+    public long getRateLimitIntervalMillis() {
+        return rateLimitIntervalMillis;
+    }
+
+}
@@ -0,0 +1,369 @@
+package com.trello;
+
+import java.io.Closeable;
+import java.net.URL;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Non-blocking audit log for the request path of {@link ApiConnection}
+ *
+ * Request threads publish events into a bounded lock-free ring buffer of
+ * preallocated slots and return immediately. A single daemon thread drains
+ * the buffer in batches and writes the events to slf4j, so console I/O never
+ * happens on a request thread. Successful requests are sampled, only one in
+ * successSampling is written. Failures and errors are never sampled and are
+ * written on the calling thread when the buffer is full. The writer parks
+ * while the buffer is empty and is woken by the next event, it is stopped
+ * with {@link #close()}.
+ *
+ * The sampling of the shared instance is read from the system property
+ * trello.audit.successSampling and defaults to {@value #DEFAULT_SUCCESS_SAMPLING}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class AsyncAuditLog implements Closeable {
+
+    static final int DEFAULT_CAPACITY = 8192;
+    static final int DEFAULT_SUCCESS_SAMPLING = 100;
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FLUSH_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final int SUCCESS = 0;
+    private static final int FAILURE = 1;
+    private static final int ERROR = 2;
+
+    private final Logger logger;
+    private final boolean enabled;
+    private final int successSampling;
+    private final int mask;
+    private final Event[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean idle;
+    private volatile boolean closed;
+    private final AtomicInteger offering = new AtomicInteger();
+
+    /**
+     * @param logger
+     *            {@link Logger} the events are written to
+     * @param capacity
+     *            number of events the buffer holds, rounded up to a power of two of at least 2
+     * @param successSampling
+     *            write one in successSampling successful requests, 1 writes all of them
+     *
+     */
+    AsyncAuditLog(Logger logger, int capacity, int successSampling) {
+        this(logger, capacity, successSampling, true);
+    }
+
+    private AsyncAuditLog(Logger logger, int capacity, int successSampling, boolean enabled) {
+        checkNotNull(logger, "logger:null");
+        checkArgument(capacity > 0 && capacity <= 1 << 30, "capacity:out of range");
+        checkArgument(successSampling > 0, "successSampling:not positive");
+        this.logger = logger;
+        this.enabled = enabled;
+        this.successSampling = successSampling;
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        // a slot is free when its sequence equals the position and full at position + 1,
+        // which only stays unambiguous with at least two slots
+        size = Math.max(size, 2);
+        this.mask = size - 1;
+        this.slots = new Event[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Event();
+            sequences.set(i, i);
+        }
+        if (enabled) {
+            writer = new Thread(new Writer(), "trello-audit-writer");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            writer = null;
+        }
+    }
+
+    /**
+     * @return the audit log shared by every {@link ApiConnection}
+     */
+    public static AsyncAuditLog shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * @return an audit log that discards every event
+     */
+    public static AsyncAuditLog disabled() {
+        return DisabledHolder.INSTANCE;
+    }
+
+    /**
+     * Records a request answered with {@link HttpResponseCode#HTTP_OK}, subject to sampling
+     *
+     * @param url
+     *            URL of the request
+     * @param code
+     *            {@link HttpResponseCode} of the response
+     */
+    public void success(URL url, HttpResponseCode code) {
+        if (!enabled || (successSampling > 1 && ThreadLocalRandom.current().nextInt(successSampling) != 0)) {
+            return;
+        }
+        if (!offer(SUCCESS, url, code, null)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Records a request answered with any other {@link HttpResponseCode}
+     *
+     * @param url
+     *            URL of the request
+     * @param code
+     *            {@link HttpResponseCode} of the response
+     */
+    public void failure(URL url, HttpResponseCode code) {
+        if (enabled && !offer(FAILURE, url, code, null)) {
+            write(FAILURE, url, code, null);
+        }
+    }
+
+    /**
+     * Records a request that could not be made
+     *
+     * @param url
+     *            URL of the request
+     * @param error
+     *            the cause of the failure
+     */
+    public void error(URL url, Throwable error) {
+        if (enabled && !offer(ERROR, url, null, error)) {
+            write(ERROR, url, null, error);
+        }
+    }
+
+    /**
+     * Waits until every event published so far has been written
+     *
+     * @param timeout
+     *            maximum time to wait
+     * @param unit
+     *            unit of the timeout
+     *
+     * @return true when every event was written before the timeout
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        long target = tail.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (enabled && head.get() < target) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.parkNanos(FLUSH_PARK_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * Writes the events published so far and stops the writer thread, events
+     * recorded afterwards are handled as if the buffer was full. The shared
+     * instance is flushed on shutdown and is not meant to be closed.
+     */
+    @Override
+    public synchronized void close() {
+        if (writer == null || closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        // an offer that saw the log open may still be publishing, the events
+        // it publishes are written here now that the writer is gone
+        while (offering.get() != 0) {
+            Thread.yield();
+        }
+        while (drain() > 0) {
+            // writes what was published before the log was closed
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of sampled success events dropped because the buffer was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @VisibleForTesting
+    boolean isWriterAlive() {
+        return writer != null && writer.isAlive();
+    }
+
+    private boolean offer(int kind, URL url, HttpResponseCode code, Throwable error) {
+        offering.incrementAndGet();
+        try {
+            return !closed && publish(kind, url, code, error);
+        } finally {
+            offering.decrementAndGet();
+        }
+    }
+
+    private boolean publish(int kind, URL url, HttpResponseCode code, Throwable error) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        int index = (int) position & mask;
+        Event event = slots[index];
+        event.kind = kind;
+        event.url = url;
+        event.code = code;
+        event.error = error;
+        // a volatile write, so that the writer checking the buffer after
+        // announcing it is idle either sees the event or is unparked
+        sequences.set(index, position + 1);
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * Writes up to {@link #BATCH_SIZE} events, only called by the writer
+     * thread, or by {@link #close()} once the writer stopped
+     *
+     * @return number of events written
+     */
+    private int drain() {
+        long position = head.get();
+        int written = 0;
+        while (written < BATCH_SIZE) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            Event event = slots[index];
+            write(event.kind, event.url, event.code, event.error);
+            event.url = null;
+            event.code = null;
+            event.error = null;
+            sequences.lazySet(index, position + slots.length);
+            position++;
+            written++;
+        }
+        head.lazySet(position);
+        return written;
+    }
+
+    private void write(int kind, URL url, HttpResponseCode code, Throwable error) {
+        switch (kind) {
+            case SUCCESS:
+                logger.info("Successful connection to : {} , code : {} , message : {} , ",
+                        url, code.getCode(), code.getMessage());
+                break;
+            case FAILURE:
+                logger.warn("Unsuccessful connection to : {} , error code : {} , error message : {}",
+                        url, code.getCode(), code.getMessage());
+                break;
+            default:
+                logger.error("The URL passed {} is not valid : {} ", url, error);
+                break;
+        }
+    }
+
+    private static final class Event {
+        private int kind;
+        private URL url;
+        private HttpResponseCode code;
+        private Throwable error;
+    }
+
+    private final class Writer implements Runnable {
+
+        @Override
+        public void run() {
+            long reportedDrops = 0;
+            while (!closed) {
+                if (drain() == 0) {
+                    long drops = dropped.sum();
+                    if (drops != reportedDrops) {
+                        logger.warn("Dropped {} sampled audit events, the audit buffer was full", drops - reportedDrops);
+                        reportedDrops = drops;
+                    }
+                    idle = true;
+                    if (!hasEvent() && !closed) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    idle = false;
+                }
+            }
+        }
+
+        private boolean hasEvent() {
+            long position = head.get();
+            return sequences.get((int) position & mask) == position + 1;
+        }
+    }
+
+    private static final class SharedHolder {
+        private static final AsyncAuditLog INSTANCE = createShared();
+
+        private static AsyncAuditLog createShared() {
+            final AsyncAuditLog auditLog = new AsyncAuditLog(LoggerFactory.getLogger(ApiConnection.class),
+                    DEFAULT_CAPACITY, Integer.getInteger("trello.audit.successSampling", DEFAULT_SUCCESS_SAMPLING));
+            Runtime.getRuntime().addShutdownHook(new Thread("trello-audit-flush") {
+                @Override
+                public void run() {
+                    auditLog.flush(1, TimeUnit.SECONDS);
+                }
+            });
+            return auditLog;
+        }
+    }
+
+    private static final class DisabledHolder {
+        private static final AsyncAuditLog INSTANCE = new AsyncAuditLog(LoggerFactory.getLogger(ApiConnection.class),
+                1, 1, false);
+    }
+
+}
@@ -0,0 +1,243 @@
+package com.trello;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compact in-memory copy of one Trello board and the Github branches of its
+ * repos, used to reconcile the two
+ *
+ * Cards are stored column wise in primitive arrays and addressed by index.
+ * Card ids are packed with {@link TrelloId}, list, label and repo names are
+ * ids of the {@link StringPool} shared by the {@link SnapshotStore} and card
+ * and branch names are UTF-8 bytes in a {@link Utf8Arena}. A snapshot is
+ * filled by one thread and then published with {@link SnapshotStore#put(BoardSnapshot)},
+ * after which it must not be modified.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class BoardSnapshot {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final StringPool pool;
+    private final long boardHigh;
+    private final int boardLow;
+
+    private final TrelloIdMap cardIndex = new TrelloIdMap();
+    private final Utf8Arena cardNames = new Utf8Arena();
+    private long[] cardHighs = new long[INITIAL_CAPACITY];
+    private int[] cardLows = new int[INITIAL_CAPACITY];
+    private int[] cardShortIds = new int[INITIAL_CAPACITY];
+    private int[] cardListIds = new int[INITIAL_CAPACITY];
+    private int[] cardLabelEnds = new int[INITIAL_CAPACITY];
+    private int[] labelIds = new int[INITIAL_CAPACITY];
+    private int labelCount;
+    private int cardCount;
+
+    private final Utf8Arena branchNames = new Utf8Arena();
+    private int[] branchRepoIds = new int[INITIAL_CAPACITY];
+    private int branchCount;
+
+    /**
+     * @param pool
+     *            {@link StringPool} shared by the boards of a {@link SnapshotStore}
+     * @param boardId
+     *            24 hex character id of the board
+     */
+    BoardSnapshot(StringPool pool, String boardId) {
+        this.pool = checkNotNull(pool, "pool:null");
+        this.boardHigh = TrelloId.high(boardId);
+        this.boardLow = TrelloId.low(boardId);
+    }
+
+    /**
+     * @param cardId
+     *            24 hex character id of the card, unique within the board
+     * @param idShort
+     *            number of the card on its board
+     * @param name
+     *            name of the card
+     * @param listName
+     *            name of the list holding the card, also the name of the Github repo
+     * @param labels
+     *            names of the labels of the card
+     *
+     * @return the index of the card
+     *
+     * @throws IllegalArgumentException
+     *             if the id is not a Trello id or the card was already added
+     */
+    public int addCard(String cardId, int idShort, String name, String listName, String... labels) {
+        checkNotNull(name, "name:null");
+        checkNotNull(listName, "listName:null");
+        checkNotNull(labels, "labels:null");
+        for (String label : labels) {
+            checkNotNull(label, "label:null");
+        }
+        long high = TrelloId.high(cardId);
+        int low = TrelloId.low(cardId);
+        checkArgument(cardIndex.get(high, low) == TrelloIdMap.ABSENT, "cardId:duplicate");
+        if (cardCount == cardHighs.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, cardCount * 2);
+            cardHighs = Arrays.copyOf(cardHighs, capacity);
+            cardLows = Arrays.copyOf(cardLows, capacity);
+            cardShortIds = Arrays.copyOf(cardShortIds, capacity);
+            cardListIds = Arrays.copyOf(cardListIds, capacity);
+            cardLabelEnds = Arrays.copyOf(cardLabelEnds, capacity);
+        }
+        if (labelCount + labels.length > labelIds.length) {
+            labelIds = Arrays.copyOf(labelIds, Math.max(labelIds.length * 2, labelCount + labels.length));
+        }
+        int labelEnd = labelCount;
+        for (String label : labels) {
+            labelIds[labelEnd++] = pool.intern(label);
+        }
+        labelCount = labelEnd;
+        int index = cardCount++;
+        cardHighs[index] = high;
+        cardLows[index] = low;
+        cardShortIds[index] = idShort;
+        cardListIds[index] = pool.intern(listName);
+        cardLabelEnds[index] = labelCount;
+        cardNames.add(name);
+        cardIndex.put(high, low, index);
+        return index;
+    }
+
+    /**
+     * @param repoName
+     *            name of the Github repo
+     * @param branchName
+     *            name of the branch
+     *
+     * @return the index of the branch
+     */
+    public int addBranch(String repoName, String branchName) {
+        checkNotNull(repoName, "repoName:null");
+        checkNotNull(branchName, "branchName:null");
+        if (branchCount == branchRepoIds.length) {
+            branchRepoIds = Arrays.copyOf(branchRepoIds, Math.max(INITIAL_CAPACITY, branchCount * 2));
+        }
+        branchRepoIds[branchCount] = pool.intern(repoName);
+        branchNames.add(branchName);
+        return branchCount++;
+    }
+
+    /**
+     * Releases the capacity reserved for cards and branches that were not added
+     */
+    public void trimToSize() {
+        cardHighs = Arrays.copyOf(cardHighs, cardCount);
+        cardLows = Arrays.copyOf(cardLows, cardCount);
+        cardShortIds = Arrays.copyOf(cardShortIds, cardCount);
+        cardListIds = Arrays.copyOf(cardListIds, cardCount);
+        cardLabelEnds = Arrays.copyOf(cardLabelEnds, cardCount);
+        labelIds = Arrays.copyOf(labelIds, labelCount);
+        branchRepoIds = Arrays.copyOf(branchRepoIds, branchCount);
+        cardNames.trimToSize();
+        branchNames.trimToSize();
+    }
+
+    public String getBoardId() {
+        return TrelloId.toString(boardHigh, boardLow);
+    }
+
+    long getBoardHigh() {
+        return boardHigh;
+    }
+
+    int getBoardLow() {
+        return boardLow;
+    }
+
+    public int getCardCount() {
+        return cardCount;
+    }
+
+    public int getBranchCount() {
+        return branchCount;
+    }
+
+    /**
+     * @param cardId
+     *            24 hex character id of a card
+     *
+     * @return the index of the card or -1 when the board has no such card
+     */
+    public int indexOf(String cardId) {
+        return cardIndex.get(TrelloId.high(cardId), TrelloId.low(cardId));
+    }
+
+    public String getCardId(int index) {
+        checkElementIndex(index, cardCount, "index");
+        return TrelloId.toString(cardHighs[index], cardLows[index]);
+    }
+
+    public int getIdShort(int index) {
+        checkElementIndex(index, cardCount, "index");
+        return cardShortIds[index];
+    }
+
+    public String getCardName(int index) {
+        return cardNames.get(index);
+    }
+
+    public String getListName(int index) {
+        checkElementIndex(index, cardCount, "index");
+        return pool.get(cardListIds[index]);
+    }
+
+    /**
+     * @param index
+     *            index of a card
+     *
+     * @return the label names of the card
+     */
+    public List<String> getLabels(int index) {
+        checkElementIndex(index, cardCount, "index");
+        int start = index == 0 ? 0 : cardLabelEnds[index - 1];
+        int end = cardLabelEnds[index];
+        if (start == end) {
+            return Collections.emptyList();
+        }
+        List<String> labels = new ArrayList<String>(end - start);
+        for (int i = start; i < end; i++) {
+            labels.add(pool.get(labelIds[i]));
+        }
+        return labels;
+    }
+
+    public String getBranchName(int index) {
+        return branchNames.get(index);
+    }
+
+    public String getBranchRepo(int index) {
+        checkElementIndex(index, branchCount, "index");
+        return pool.get(branchRepoIds[index]);
+    }
+
+    /**
+     * @return the {@link StringPool} id of the list of the card
+     */
+    int getListId(int index) {
+        checkElementIndex(index, cardCount, "index");
+        return cardListIds[index];
+    }
+
+    /**
+     * @return the {@link StringPool} id of the repo of the branch
+     */
+    int getBranchRepoId(int index) {
+        checkElementIndex(index, branchCount, "index");
+        return branchRepoIds[index];
+    }
+
+}
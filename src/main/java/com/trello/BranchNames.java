@@ -0,0 +1,98 @@
+package com.trello;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Naming convention linking a Trello card to its Github branch
+ *
+ * The branch of a card is named after the number of the card on its board
+ * followed by a slug of the card name, eg: card 42 "Fix the login page"
+ * is branch 42-fix-the-login-page. Renaming a card changes the slug but not
+ * the number, so the number alone identifies the card of a branch. The
+ * separator is always written, a card without any letter or digit in its name
+ * gets the slug {@value #EMPTY_SLUG}, so that branches made of digits only,
+ * eg: release branch 2024, are not taken for the branch of a card.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class BranchNames {
+
+    /**
+     * Returned by {@link #parseIdShort(String)} for a branch that does not
+     * follow the convention, eg: master
+     */
+    public static final int UNMANAGED = -1;
+
+    static final int MAX_SLUG_LENGTH = 60;
+    static final String EMPTY_SLUG = "card";
+    private static final int MAX_ID_SHORT_DIGITS = 9;
+
+    private BranchNames() {
+    }
+
+    /**
+     * @param idShort
+     *            number of the card on its board
+     * @param cardName
+     *            name of the card
+     *
+     * @return the name of the branch of the card
+     */
+    public static String forCard(int idShort, String cardName) {
+        checkArgument(idShort >= 0, "idShort:negative");
+        checkNotNull(cardName, "cardName:null");
+        StringBuilder branch = new StringBuilder(cardName.length() + 11).append(idShort);
+        int idLength = branch.length();
+        int maxLength = idLength + 1 + MAX_SLUG_LENGTH;
+        boolean separator = true;
+        for (int i = 0; i < cardName.length(); i++) {
+            char c = Character.toLowerCase(cardName.charAt(i));
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (branch.length() + (separator ? 2 : 1) > maxLength) {
+                    break;
+                }
+                if (separator) {
+                    branch.append('-');
+                    separator = false;
+                }
+                branch.append(c);
+            } else {
+                separator = true;
+            }
+        }
+        if (branch.length() == idLength) {
+            branch.append('-').append(EMPTY_SLUG);
+        }
+        return branch.toString();
+    }
+
+    /**
+     * @param branchName
+     *            name of a Github branch
+     *
+     * @return the number of the card of the branch or {@link #UNMANAGED},
+     *         also for a number without the separator, eg: 2024
+     */
+    public static int parseIdShort(String branchName) {
+        int idShort = 0;
+        int i = 0;
+        while (i < branchName.length() && i <= MAX_ID_SHORT_DIGITS) {
+            char c = branchName.charAt(i);
+            if (c == '-') {
+                break;
+            }
+            if (c < '0' || c > '9') {
+                return UNMANAGED;
+            }
+            idShort = idShort * 10 + (c - '0');
+            i++;
+        }
+        if (i == 0 || i > MAX_ID_SHORT_DIGITS || i == branchName.length()) {
+            return UNMANAGED;
+        }
+        return idShort;
+    }
+
+}
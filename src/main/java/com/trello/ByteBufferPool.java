@@ -0,0 +1,112 @@
+package com.trello;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Size-classed pool of the buffers response bodies are read into, so that
+ * reading a body allocates nothing once the pool is warm
+ *
+ * A buffer is taken from the smallest class that fits the requested size and
+ * is returned to its class when released. Each class keeps at most
+ * {@value #MAX_RETAINED_BYTES_PER_CLASS} bytes of free buffers, the others
+ * are left to the garbage collector. The buffers are array-backed because
+ * {@link java.net.HttpURLConnection} only exposes an {@link java.io.InputStream},
+ * which fills a byte array directly and a direct buffer only through a copy.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class ByteBufferPool {
+
+    static final int[] SIZE_CLASSES = { 4 * 1024, 16 * 1024, 64 * 1024, 256 * 1024 };
+    static final int MAX_RETAINED_BYTES_PER_CLASS = 1024 * 1024;
+
+    private final List<ArrayBlockingQueue<ByteBuffer>> free;
+    private final AtomicLong allocated = new AtomicLong();
+
+    /**
+     * @return the pool shared by every {@link ApiConnection}
+     */
+    public static ByteBufferPool shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    ByteBufferPool() {
+        free = new ArrayList<ArrayBlockingQueue<ByteBuffer>>(SIZE_CLASSES.length);
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            free.add(new ArrayBlockingQueue<ByteBuffer>(MAX_RETAINED_BYTES_PER_CLASS / SIZE_CLASSES[i]));
+        }
+    }
+
+    /**
+     * @param size
+     *            number of bytes wanted, the largest class is used for more
+     *            than it holds
+     *
+     * @return an empty buffer of the smallest class holding the size
+     */
+    public ByteBuffer acquire(int size) {
+        checkArgument(size >= 0, "size:negative");
+        int sizeClass = sizeClass(size);
+        ByteBuffer buffer = free.get(sizeClass).poll();
+        if (buffer == null) {
+            allocated.incrementAndGet();
+            return ByteBuffer.allocate(SIZE_CLASSES[sizeClass]);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * @param buffer
+     *            buffer returned by {@link #acquire(int)}, it must not be used
+     *            after it was released
+     */
+    public void release(ByteBuffer buffer) {
+        checkNotNull(buffer, "buffer:null");
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            if (buffer.capacity() == SIZE_CLASSES[i] && buffer.hasArray()) {
+                free.get(i).offer(buffer);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the number of buffers the pool had to allocate so far
+     */
+    public long getAllocated() {
+        return allocated.get();
+    }
+
+    /**
+     * @return the size of the next class up, to grow a body past a full buffer
+     */
+    static int nextSize(int capacity) {
+        return SIZE_CLASSES[Math.min(sizeClass(capacity) + 1, SIZE_CLASSES.length - 1)];
+    }
+
+    @VisibleForTesting
+    static int sizeClass(int size) {
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            if (size <= SIZE_CLASSES[i]) {
+                return i;
+            }
+        }
+        return SIZE_CLASSES.length - 1;
+    }
+
+    private static final class SharedHolder {
+        private static final ByteBufferPool INSTANCE = new ByteBufferPool();
+    }
+
+}
@@ -0,0 +1,267 @@
+package com.trello;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Limits the requests in flight to one host to a limit that adapts to the
+ * latency of the host, so that no fixed connection count has to be tuned
+ *
+ * The limit follows a gradient: the ratio of the round trip time without load,
+ * the lowest one seen, to the round trip time of each request. While latency
+ * stays flat the ratio is 1 and the limit grows by its square root, the
+ * queue allowed at the host. When latency rises the ratio drops towards 0.5
+ * and the limit shrinks, and every 5xx, {@link HttpResponseCode#HTTP_TOO_MANY_REQUESTS}
+ * or connection error cuts the limit multiplicatively. The lowest round trip
+ * time is probed again periodically so that a lasting change of the host is
+ * picked up. Requests over the limit wait for a permit up to a timeout and
+ * are then rejected.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class ConcurrencyLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    static final int DEFAULT_INITIAL_LIMIT = 4;
+    static final int DEFAULT_MAX_LIMIT = 64;
+    static final long DEFAULT_MAX_WAIT_MILLIS = 1000;
+
+    private static final int MIN_LIMIT = 1;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int PROBE_INTERVAL = 1000;
+
+    private final String host;
+    private final int maxLimit;
+    private final long maxWaitNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private double limit;
+    private int inFlight;
+    private long rttNoLoadNanos;
+    private int samplesSinceProbe;
+
+    /**
+     * Limiter with the default limits
+     *
+     * @param host
+     *            host the requests are made to, eg: api.github.com
+     */
+    public ConcurrencyLimiter(String host) {
+        this(host, DEFAULT_INITIAL_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param host
+     *            host the requests are made to, eg: api.github.com
+     * @param initialLimit
+     *            requests in flight before any latency was observed
+     * @param maxLimit
+     *            requests in flight the limit never grows past
+     * @param maxWait
+     *            time a request waits for a permit before it is rejected, 0
+     *            rejects it at once
+     * @param unit
+     *            {@link TimeUnit} of maxWait
+     */
+    public ConcurrencyLimiter(String host, int initialLimit, int maxLimit, long maxWait, TimeUnit unit) {
+        checkNotNull(host, "host:null");
+        checkArgument(initialLimit >= MIN_LIMIT, "initialLimit:not positive");
+        checkArgument(maxLimit >= initialLimit, "maxLimit:less than initialLimit");
+        checkArgument(maxWait >= 0, "maxWait:negative");
+        checkNotNull(unit, "unit:null");
+        this.host = host;
+        this.limit = initialLimit;
+        this.maxLimit = maxLimit;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+    }
+
+    /**
+     * Fetches from the API once a permit is available and feeds the outcome
+     * back into the limit
+     *
+     * @param fetcher
+     *            {@link ApiFetcher} to one of the APIs of the host, eg: an
+     *            {@link ApiConnection}
+     *
+     * @return the {@link ApiResponse} of the fetcher
+     *
+     * @throws RejectedExecutionException
+     *             if no permit became available in time
+     * @throws UnrecognizedResponseException
+     *             as thrown by {@link ApiFetcher#fetch(Credential, RequestHandle)}
+     */
+    public ApiResponse fetch(ApiFetcher fetcher) {
+        return fetch(fetcher, null, null);
+    }
+
+    /**
+     * Fetches like {@link #fetch(ApiFetcher)} with the given credential and
+     * handle
+     *
+     * @param fetcher
+     *            {@link ApiFetcher} to one of the APIs of the host
+     * @param credential
+     *            {@link Credential} passed on to the fetcher, may be null
+     * @param handle
+     *            {@link RequestHandle} passed on to the fetcher, may be null
+     *
+     * @return the {@link ApiResponse} of the fetcher
+     */
+    public ApiResponse fetch(ApiFetcher fetcher, Credential credential, RequestHandle handle) {
+        checkNotNull(fetcher, "fetcher:null");
+        if (!acquire(maxWaitNanos)) {
+            throw new RejectedExecutionException("host:" + host + " over limit of " + getLimit());
+        }
+        long startNanos = System.nanoTime();
+        boolean dropped = true;
+        try {
+            ApiResponse response = fetcher.fetch(credential, handle);
+            dropped = isOverloaded(response.getResponseCode());
+            return response;
+        } finally {
+            release(System.nanoTime() - startNanos, dropped);
+        }
+    }
+
+    /**
+     * @param fetcher
+     *            {@link ApiFetcher} to one of the APIs of the host
+     *
+     * @return an {@link ApiFetcher} sending every request through this limiter
+     */
+    public ApiFetcher wrap(final ApiFetcher fetcher) {
+        checkNotNull(fetcher, "fetcher:null");
+        return new ApiFetcher() {
+            @Override
+            public ApiResponse fetch(Credential credential, RequestHandle handle) {
+                return ConcurrencyLimiter.this.fetch(fetcher, credential, handle);
+            }
+        };
+    }
+
+    /**
+     * @return the host the requests are made to
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * @return the number of requests currently allowed in flight
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of requests currently in flight
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param timeoutNanos
+     *            time to wait for a permit
+     *
+     * @return true if a permit was taken, which must be given back with
+     *         {@link #release(long, boolean)}
+     */
+    @VisibleForTesting
+    boolean acquire(long timeoutNanos) {
+        lock.lock();
+        try {
+            long remaining = timeoutNanos;
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            inFlight++;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param rttNanos
+     *            round trip time of the request
+     * @param dropped
+     *            true if the host was overloaded or could not be reached
+     */
+    @VisibleForTesting
+    void release(long rttNanos, boolean dropped) {
+        lock.lock();
+        try {
+            double previous = limit;
+            if (dropped) {
+                limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+            } else {
+                update(rttNanos);
+            }
+            inFlight--;
+            if ((int) limit != (int) previous) {
+                LOGGER.debug("Concurrency limit of {} changed from {} to {}", host, (int) previous, (int) limit);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the limit along the latency gradient, called with the lock held
+     */
+    private void update(long rttNanos) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        if (rttNoLoadNanos == 0 || rttNanos < rttNoLoadNanos || ++samplesSinceProbe >= PROBE_INTERVAL) {
+            rttNoLoadNanos = rttNanos;
+            samplesSinceProbe = 0;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, RTT_TOLERANCE * rttNoLoadNanos / rttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        if (inFlight < limit / 2) {
+            // the limit was not what held the requests back, nothing was learned about growing it
+            newLimit = Math.min(limit, newLimit);
+        }
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(MIN_LIMIT, Math.min(maxLimit, newLimit));
+    }
+
+    private static boolean isOverloaded(HttpResponseCode code) {
+        return code == HttpResponseCode.HTTP_TOO_MANY_REQUESTS || code.getCode() >= 500;
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.trello;
+
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Identity a request to the API is authorized with
+ *
+ * Github tokens, personal or from an app installation, are sent in the
+ * Authorization header. Trello expects its key and token as query
+ * parameters, so the URL of the request is rewritten instead. The secrets
+ * never appear in {@link #toString()}, only the name of the credential.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class Credential {
+
+    private static final String AUTHORIZATION = "Authorization";
+
+    private final String name;
+    private final String authorization;
+    private final String query;
+
+    private Credential(String name, String authorization, String query) {
+        this.name = name;
+        this.authorization = authorization;
+        this.query = query;
+    }
+
+    /**
+     * @param name
+     *            name the credential is logged under, eg: the account it belongs to
+     * @param token
+     *            Github personal access or installation token
+     *
+     * @return a {@link Credential} for api.github.com
+     */
+    public static Credential githubToken(String name, String token) {
+        checkNotNull(name, "name:null");
+        checkNotNull(token, "token:null");
+        checkArgument(!token.trim().isEmpty(), "token:blank");
+        return new Credential(name, "token " + token, null);
+    }
+
+    /**
+     * @param name
+     *            name the credential is logged under, eg: the account it belongs to
+     * @param key
+     *            Trello API key
+     * @param token
+     *            Trello token granted to the key
+     *
+     * @return a {@link Credential} for api.trello.com
+     */
+    public static Credential trelloToken(String name, String key, String token) {
+        checkNotNull(name, "name:null");
+        checkNotNull(key, "key:null");
+        checkNotNull(token, "token:null");
+        checkArgument(!key.trim().isEmpty(), "key:blank");
+        checkArgument(!token.trim().isEmpty(), "token:blank");
+        return new Credential(name, null, "key=" + encode(key) + "&token=" + encode(token));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param url
+     *            URL of the request
+     *
+     * @return the URL carrying the credential, the same URL if the credential
+     *         is sent in a header
+     */
+    URL authorize(URL url) {
+        if (query == null) {
+            return url;
+        }
+        String file = url.getFile() + (url.getQuery() == null ? "?" : "&") + query;
+        try {
+            return new URL(url.getProtocol(), url.getHost(), url.getPort(), file);
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("Could not create new URL", e);
+        }
+    }
+
+    /**
+     * @param connection
+     *            {@link HttpURLConnection} of the request, not connected yet
+     */
+    void authorize(HttpURLConnection connection) {
+        if (authorization != null) {
+            connection.setRequestProperty(AUTHORIZATION, authorization);
+        }
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
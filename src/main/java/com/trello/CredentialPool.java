@@ -0,0 +1,309 @@
+package com.trello;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Spreads the requests to one host over several {@link Credential}s so that
+ * throughput is not capped by the rate limit of a single identity
+ *
+ * The remaining requests of every credential are tracked from the rate limit
+ * headers of its responses: X-RateLimit-Remaining and X-RateLimit-Reset for
+ * Github, x-rate-limit-api-token-remaining and
+ * x-rate-limit-api-token-interval-ms for Trello, whose window is taken to
+ * reset one interval after the response. Each request goes to the credential with the most headroom left, counting
+ * its requests still in flight. A credential answered with
+ * {@link HttpResponseCode#HTTP_UNAUTHORIZED} is revoked for good, one answered
+ * with {@link HttpResponseCode#HTTP_FORBIDDEN} or
+ * {@link HttpResponseCode#HTTP_TOO_MANY_REQUESTS} is suspended until its
+ * rate limit resets, and the request fails over to the next credential.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class CredentialPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CredentialPool.class);
+
+    static final long DEFAULT_SUSPENSION_SECONDS = 60;
+
+    private final String host;
+    private final Clock clock;
+    private final List<State> states = new ArrayList<State>();
+    private long uses;
+
+    /**
+     * @param host
+     *            host the credentials are for, eg: api.github.com
+     */
+    public CredentialPool(String host) {
+        this(host, Clock.systemUTC());
+    }
+
+    @VisibleForTesting
+    CredentialPool(String host, Clock clock) {
+        this.host = checkNotNull(host, "host:null");
+        this.clock = checkNotNull(clock, "clock:null");
+    }
+
+    /**
+     * @param credential
+     *            {@link Credential} to add, its name must be unique in the pool
+     */
+    public synchronized void add(Credential credential) {
+        checkNotNull(credential, "credential:null");
+        for (State state : states) {
+            checkArgument(!state.credential.getName().equals(credential.getName()), "credential:duplicate name");
+        }
+        states.add(new State(credential));
+    }
+
+    /**
+     * Sends the request with the credential that has the most headroom and
+     * fails over to the next one while credentials are rejected
+     *
+     * @param fetcher
+     *            {@link ApiFetcher} to one of the APIs of the host, eg: an
+     *            {@link ApiConnection}
+     *
+     * @return the {@link ApiResponse} of the first credential that was not
+     *         rejected, or the last rejection if every credential was
+     *
+     * @throws RejectedExecutionException
+     *             if no credential was available
+     * @throws UnrecognizedResponseException
+     *             as thrown by {@link ApiFetcher#fetch(Credential, RequestHandle)}
+     */
+    public ApiResponse fetch(ApiFetcher fetcher) {
+        return fetch(fetcher, null, null);
+    }
+
+    /**
+     * Fetches like {@link #fetch(ApiFetcher)} through the given handle
+     *
+     * @param fetcher
+     *            {@link ApiFetcher} to one of the APIs of the host
+     * @param credential
+     *            {@link Credential} chosen before the pool, used as is
+     *            instead of one of the pool. A null value lets the pool choose
+     * @param handle
+     *            {@link RequestHandle} passed on to the fetcher, may be null
+     *
+     * @return the {@link ApiResponse} of the first credential that was not
+     *         rejected, or the last rejection if every credential was
+     */
+    public ApiResponse fetch(ApiFetcher fetcher, Credential credential, RequestHandle handle) {
+        checkNotNull(fetcher, "fetcher:null");
+        if (credential != null) {
+            return fetcher.fetch(credential, handle);
+        }
+        ApiResponse response = null;
+        int attempts = size();
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            Credential acquired = acquire();
+            if (acquired == null) {
+                break;
+            }
+            ApiResponse attemptResponse = null;
+            try {
+                attemptResponse = fetcher.fetch(acquired, handle);
+            } finally {
+                update(acquired, attemptResponse);
+            }
+            response = attemptResponse;
+            if (!isRejected(response.getResponseCode())) {
+                return response;
+            }
+        }
+        if (response == null) {
+            throw new RejectedExecutionException("host:" + host + " has no credential available");
+        }
+        return response;
+    }
+
+    /**
+     * @param fetcher
+     *            {@link ApiFetcher} to one of the APIs of the host
+     *
+     * @return an {@link ApiFetcher} authorizing every request with a
+     *         credential of this pool
+     */
+    public ApiFetcher wrap(final ApiFetcher fetcher) {
+        checkNotNull(fetcher, "fetcher:null");
+        return new ApiFetcher() {
+            @Override
+            public ApiResponse fetch(Credential credential, RequestHandle handle) {
+                return CredentialPool.this.fetch(fetcher, credential, handle);
+            }
+        };
+    }
+
+    /**
+     * @return the {@link Credential} with the most headroom, which must be
+     *         handed back with {@link #update(Credential, ApiResponse)}, or
+     *         null if every credential is revoked or suspended
+     */
+    public synchronized Credential acquire() {
+        long now = clock.millis();
+        State best = null;
+        for (State state : states) {
+            state.expireWindow(now);
+            if (!state.isAvailable(now)) {
+                continue;
+            }
+            if (best == null || state.headroom() > best.headroom()
+                    || (state.headroom() == best.headroom() && state.lastUse < best.lastUse)) {
+                best = state;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        best.inFlight++;
+        best.lastUse = ++uses;
+        return best.credential;
+    }
+
+    /**
+     * @param credential
+     *            {@link Credential} returned by {@link #acquire()}
+     * @param response
+     *            {@link ApiResponse} the request got with it, null if the
+     *            request failed without a response
+     */
+    public synchronized void update(Credential credential, ApiResponse response) {
+        State state = find(credential);
+        state.inFlight--;
+        if (response == null) {
+            return;
+        }
+        long now = clock.millis();
+        if (response.getRateLimitRemaining() != ApiResponse.UNKNOWN) {
+            state.remaining = response.getRateLimitRemaining();
+            state.resetAtMillis = resetAt(response, now);
+        }
+        switch (response.getResponseCode()) {
+            case HTTP_UNAUTHORIZED:
+                state.revoked = true;
+                LOGGER.warn("Credential {} for {} was revoked", credential, host);
+                break;
+            case HTTP_FORBIDDEN:
+            case HTTP_TOO_MANY_REQUESTS:
+                state.suspendedUntilMillis = suspendedUntil(state, response, now);
+                LOGGER.warn("Credential {} for {} is suspended for {} seconds", credential, host,
+                        TimeUnit.MILLISECONDS.toSeconds(state.suspendedUntilMillis - now));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return the number of credentials in the pool
+     */
+    public synchronized int size() {
+        return states.size();
+    }
+
+    /**
+     * @return the number of credentials neither revoked nor suspended
+     */
+    public synchronized int getAvailable() {
+        long now = clock.millis();
+        int available = 0;
+        for (State state : states) {
+            state.expireWindow(now);
+            if (state.isAvailable(now)) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    private State find(Credential credential) {
+        for (State state : states) {
+            if (state.credential == credential) {
+                return state;
+            }
+        }
+        throw new IllegalArgumentException("credential:not in pool");
+    }
+
+    private static long resetAt(ApiResponse response, long now) {
+        if (response.getRateLimitReset() != ApiResponse.UNKNOWN) {
+            return TimeUnit.SECONDS.toMillis(response.getRateLimitReset());
+        }
+        if (response.getRateLimitIntervalMillis() != ApiResponse.UNKNOWN) {
+            return now + response.getRateLimitIntervalMillis();
+        }
+        return 0;
+    }
+
+    private static long suspendedUntil(State state, ApiResponse response, long now) {
+        if (response.getRetryAfterSeconds() != ApiResponse.UNKNOWN) {
+            return now + TimeUnit.SECONDS.toMillis(response.getRetryAfterSeconds());
+        }
+        if (state.remaining == 0 && state.resetAtMillis > now) {
+            return state.resetAtMillis;
+        }
+        return now + TimeUnit.SECONDS.toMillis(DEFAULT_SUSPENSION_SECONDS);
+    }
+
+    private static boolean isRejected(HttpResponseCode code) {
+        return code == HttpResponseCode.HTTP_UNAUTHORIZED || code == HttpResponseCode.HTTP_FORBIDDEN
+                || code == HttpResponseCode.HTTP_TOO_MANY_REQUESTS;
+    }
+
+    private static final class State {
+
+        private final Credential credential;
+        private long remaining = ApiResponse.UNKNOWN;
+        private long resetAtMillis;
+        private long suspendedUntilMillis;
+        private boolean revoked;
+        private int inFlight;
+        private long lastUse;
+
+        State(Credential credential) {
+            this.credential = credential;
+        }
+
+        /**
+         * Forgets the remaining requests once the rate limit window they
+         * were counted in has reset since the last response
+         */
+        void expireWindow(long now) {
+            if (resetAtMillis != 0 && resetAtMillis <= now) {
+                remaining = ApiResponse.UNKNOWN;
+                resetAtMillis = 0;
+            }
+        }
+
+        boolean isAvailable(long now) {
+            if (revoked || suspendedUntilMillis > now) {
+                return false;
+            }
+            return remaining != 0 || resetAtMillis <= now;
+        }
+
+        /**
+         * A credential whose remaining requests are not known yet is tried
+         * before the others
+         */
+        long headroom() {
+            return remaining == ApiResponse.UNKNOWN ? Long.MAX_VALUE : remaining - inFlight;
+        }
+    }
+
+}
@@ -0,0 +1,290 @@
+package com.trello;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Cuts the tail latency of idempotent GET requests by hedging: when a request
+ * has not completed after a percentile of the recent latencies, a second copy
+ * is sent on another connection, the first response wins and the other copy
+ * is cancelled
+ *
+ * Hedges are paid for from a budget: every request adds a fraction of a token
+ * and every hedge spends a whole one, so at a ratio of 0.1 at most one
+ * request in ten is sent twice however slow the host gets. Until the tracker
+ * has seen enough requests for its percentile to mean anything, nothing is
+ * hedged.
+ *
+ * The latency of every copy is tracked, a cancelled copy with the time it
+ * had been running, so that the slow requests hedging hides still count
+ * towards the percentile.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class HedgedRequestExecutor {
+
+    static final double DEFAULT_PERCENTILE = 95;
+    static final double DEFAULT_BUDGET_RATIO = 0.1;
+    static final int MIN_SAMPLES = 20;
+    private static final double MAX_TOKENS = 10;
+
+    private final ExecutorService executor;
+    private final LatencyTracker tracker;
+    private final double percentile;
+    private final double budgetRatio;
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private double tokens;
+
+    /**
+     * Executor hedging at the {@value #DEFAULT_PERCENTILE}th percentile with a
+     * budget of {@value #DEFAULT_BUDGET_RATIO} hedges per request
+     *
+     * @param executor
+     *            {@link ExecutorService} the copies of a request run on, needs
+     *            two threads per request in flight for hedges to go out
+     */
+    public HedgedRequestExecutor(ExecutorService executor) {
+        this(executor, new LatencyTracker(), DEFAULT_PERCENTILE, DEFAULT_BUDGET_RATIO);
+    }
+
+    /**
+     * @param executor
+     *            {@link ExecutorService} the copies of a request run on, needs
+     *            two threads per request in flight for hedges to go out
+     * @param tracker
+     *            {@link LatencyTracker} of the host the requests are made to
+     * @param percentile
+     *            percentile of the recent latencies after which a request is
+     *            hedged, eg: 95
+     * @param budgetRatio
+     *            hedges allowed per request, between 0 and 1
+     */
+    public HedgedRequestExecutor(ExecutorService executor, LatencyTracker tracker, double percentile,
+            double budgetRatio) {
+        checkNotNull(executor, "executor:null");
+        checkNotNull(tracker, "tracker:null");
+        checkArgument(percentile > 0 && percentile <= 100, "percentile:out of range");
+        checkArgument(budgetRatio >= 0 && budgetRatio <= 1, "budgetRatio:out of range");
+        this.executor = executor;
+        this.tracker = tracker;
+        this.percentile = percentile;
+        this.budgetRatio = budgetRatio;
+    }
+
+    /**
+     * @param fetcher
+     *            {@link ApiFetcher} making an idempotent GET request, eg: an
+     *            {@link ApiConnection}
+     *
+     * @return the {@link ApiResponse} of whichever copy of the request
+     *         completed first
+     *
+     * @throws UnrecognizedResponseException
+     *             if every copy of the request failed
+     */
+    public ApiResponse fetch(ApiFetcher fetcher) {
+        return fetch(fetcher, null, null);
+    }
+
+    /**
+     * Fetches like {@link #fetch(ApiFetcher)} with the given credential,
+     * every copy of the request can be cancelled through the given handle
+     *
+     * @param fetcher
+     *            {@link ApiFetcher} making an idempotent GET request
+     * @param credential
+     *            {@link Credential} every copy is sent with, may be null
+     * @param handle
+     *            {@link RequestHandle} the request can be cancelled through,
+     *            may be null
+     *
+     * @return the {@link ApiResponse} of whichever copy of the request
+     *         completed first
+     */
+    public ApiResponse fetch(ApiFetcher fetcher, Credential credential, RequestHandle handle) {
+        checkNotNull(fetcher, "fetcher:null");
+        depositHedgeToken();
+        ExecutorCompletionService<ApiResponse> completion = new ExecutorCompletionService<ApiResponse>(executor);
+        Attempt primary = new Attempt(fetcher, credential, handle);
+        Attempt hedge = null;
+        Future<ApiResponse> primaryFuture = completion.submit(primary);
+        try {
+            long delayNanos = getHedgeDelayNanos();
+            Future<ApiResponse> done = delayNanos < 0 ? completion.take()
+                    : completion.poll(delayNanos, TimeUnit.NANOSECONDS);
+            int outstanding = 1;
+            if (done == null) {
+                if (tryAcquireHedge()) {
+                    hedge = new Attempt(fetcher, credential, handle);
+                    completion.submit(hedge);
+                    hedges.incrementAndGet();
+                    outstanding++;
+                }
+                done = completion.take();
+            }
+            while (true) {
+                outstanding--;
+                try {
+                    ApiResponse response = done.get();
+                    if (done != primaryFuture) {
+                        hedgeWins.incrementAndGet();
+                    }
+                    return response;
+                } catch (ExecutionException e) {
+                    if (outstanding == 0) {
+                        throw propagate(e.getCause());
+                    }
+                }
+                done = completion.take();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Request was interrupted");
+        } finally {
+            primary.cancel();
+            if (hedge != null) {
+                hedge.cancel();
+            }
+        }
+    }
+
+    /**
+     * @param fetcher
+     *            {@link ApiFetcher} making idempotent GET requests
+     *
+     * @return an {@link ApiFetcher} hedging every request
+     */
+    public ApiFetcher wrap(final ApiFetcher fetcher) {
+        checkNotNull(fetcher, "fetcher:null");
+        return new ApiFetcher() {
+            @Override
+            public ApiResponse fetch(Credential credential, RequestHandle handle) {
+                return HedgedRequestExecutor.this.fetch(fetcher, credential, handle);
+            }
+        };
+    }
+
+    /**
+     * @return the number of hedges sent
+     */
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    /**
+     * @return the number of requests answered by their hedge
+     */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * @return the time after which a request is hedged, negative while the
+     *         tracker has too few samples
+     */
+    @VisibleForTesting
+    long getHedgeDelayNanos() {
+        if (tracker.getCount() < MIN_SAMPLES) {
+            return -1;
+        }
+        return tracker.percentile(percentile);
+    }
+
+    private synchronized boolean tryAcquireHedge() {
+        if (tokens >= 1) {
+            tokens--;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void depositHedgeToken() {
+        tokens = Math.min(MAX_TOKENS, tokens + budgetRatio);
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new UnrecognizedResponseException("Response Code was not found", cause, false);
+    }
+
+    /**
+     * One copy of a request
+     */
+    private final class Attempt implements Callable<ApiResponse> {
+
+        private final ApiFetcher fetcher;
+        private final Credential credential;
+        private final RequestHandle handle;
+        private long startNanos;
+        private boolean started;
+        private boolean finished;
+
+        Attempt(ApiFetcher fetcher, Credential credential, RequestHandle parent) {
+            this.fetcher = fetcher;
+            this.credential = credential;
+            this.handle = parent == null ? new RequestHandle() : parent.child();
+        }
+
+        @Override
+        public ApiResponse call() {
+            synchronized (this) {
+                startNanos = System.nanoTime();
+                started = true;
+            }
+            try {
+                ApiResponse response = fetcher.fetch(credential, handle);
+                finish();
+                return response;
+            } catch (UnrecognizedResponseException e) {
+                finish();
+                throw e;
+            }
+        }
+
+        private void finish() {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+            }
+            tracker.record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Cancels the copy if still running, tracking the time it had run
+         */
+        void cancel() {
+            boolean running;
+            long runningSinceNanos;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                running = started;
+                runningSinceNanos = startNanos;
+            }
+            handle.cancel();
+            if (running) {
+                tracker.record(System.nanoTime() - runningSinceNanos);
+            }
+        }
+    }
+
+}
@@ -145,6 +145,11 @@ public enum HttpResponseCode {
      * support.
      */
     HTTP_UNSUPPORTED_TYPE("Unsupported Media Type", 415),
+    /**
+     * The user has sent too many requests in a given amount of time, the
+     * Retry-After header tells how long to wait.
+     */
+    HTTP_TOO_MANY_REQUESTS("Too Many Requests", 429),
     /**
      * A generic error message, given when an unexpected condition was
      * encountered and no more specific message is suitable.
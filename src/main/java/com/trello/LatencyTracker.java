@@ -0,0 +1,124 @@
+package com.trello;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Percentiles of the latencies of the most recent requests
+ *
+ * The latencies are kept in a ring of fixed size, so old samples age out as
+ * the host speeds up or slows down. Percentiles are read without locking from
+ * a sorted snapshot of the ring, which is only rebuilt once refreshInterval
+ * new samples came in, so that a request does not copy and sort the whole
+ * window. While fewer samples than that were recorded, every new sample is
+ * taken into account.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class LatencyTracker {
+
+    static final int DEFAULT_WINDOW = 1024;
+    static final int DEFAULT_REFRESH_INTERVAL = 64;
+
+    private static final Snapshot EMPTY = new Snapshot(new long[0], 0);
+
+    private final long[] window;
+    private final int refreshInterval;
+    private int next;
+    private volatile long recorded;
+    private volatile Snapshot snapshot = EMPTY;
+
+    /**
+     * Tracker over the last {@value #DEFAULT_WINDOW} requests, refreshed every
+     * {@value #DEFAULT_REFRESH_INTERVAL} requests
+     */
+    public LatencyTracker() {
+        this(DEFAULT_WINDOW, DEFAULT_REFRESH_INTERVAL);
+    }
+
+    /**
+     * @param windowSize
+     *            number of recent requests the percentiles are taken over,
+     *            refreshed every sixteenth of the window
+     */
+    public LatencyTracker(int windowSize) {
+        this(windowSize, Math.max(1, windowSize / 16));
+    }
+
+    /**
+     * @param windowSize
+     *            number of recent requests the percentiles are taken over
+     * @param refreshInterval
+     *            number of new samples after which the percentiles are recomputed
+     */
+    public LatencyTracker(int windowSize, int refreshInterval) {
+        checkArgument(windowSize > 0, "windowSize:not positive");
+        checkArgument(refreshInterval > 0, "refreshInterval:not positive");
+        this.window = new long[windowSize];
+        this.refreshInterval = refreshInterval;
+    }
+
+    /**
+     * @param latencyNanos
+     *            latency of a request
+     */
+    public synchronized void record(long latencyNanos) {
+        checkArgument(latencyNanos >= 0, "latencyNanos:negative");
+        window[next] = latencyNanos;
+        next = (next + 1) % window.length;
+        recorded++;
+    }
+
+    /**
+     * @return the number of latencies in the window
+     */
+    public int getCount() {
+        return (int) Math.min(recorded, window.length);
+    }
+
+    /**
+     * @param percentile
+     *            percentile between 0 and 100, eg: 95
+     *
+     * @return the latency in nanoseconds under which that percentage of the
+     *         requests in the window completed, 0 if the window is empty
+     */
+    public long percentile(double percentile) {
+        checkArgument(percentile >= 0 && percentile <= 100, "percentile:out of range");
+        Snapshot current = snapshot;
+        long total = recorded;
+        if (total - current.recorded >= refreshInterval
+                || (current.recorded < refreshInterval && total != current.recorded)) {
+            current = refresh();
+        }
+        long[] sorted = current.sorted;
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, rank)];
+    }
+
+    private synchronized Snapshot refresh() {
+        if (snapshot.recorded != recorded) {
+            long[] sorted = Arrays.copyOf(window, getCount());
+            Arrays.sort(sorted);
+            snapshot = new Snapshot(sorted, recorded);
+        }
+        return snapshot;
+    }
+
+    private static final class Snapshot {
+
+        private final long[] sorted;
+        private final long recorded;
+
+        Snapshot(long[] sorted, long recorded) {
+            this.sorted = sorted;
+            this.recorded = recorded;
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+package com.trello;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.trello.ReconciliationPlan.ActionType;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Computes the {@link ReconciliationPlan} of every board of a {@link SnapshotStore}
+ *
+ * Cards and branches are reduced to a packed key of repo and card number, see
+ * {@link BranchNames}, sorted by key and merge-joined, so a board costs
+ * O((cards + branches) log(cards + branches)) instead of O(cards x branches).
+ * Boards are independent and are planned in parallel on a {@link ForkJoinPool}.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class ReconciliationEngine {
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Engine running on the common {@link ForkJoinPool}
+     */
+    public ReconciliationEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool
+     *            {@link ForkJoinPool} the boards are planned on
+     */
+    public ReconciliationEngine(ForkJoinPool pool) {
+        this.pool = checkNotNull(pool, "pool:null");
+    }
+
+    /**
+     * @param boards
+     *            snapshots of the boards to reconcile
+     *
+     * @return the plan of every board, in the order of the boards
+     */
+    public List<ReconciliationPlan> reconcile(List<BoardSnapshot> boards) {
+        checkNotNull(boards, "boards:null");
+        BoardSnapshot[] input = boards.toArray(new BoardSnapshot[boards.size()]);
+        ReconciliationPlan[] plans = new ReconciliationPlan[input.length];
+        pool.invoke(new BoardsTask(input, plans, 0, input.length));
+        return Arrays.asList(plans);
+    }
+
+    /**
+     * @param board
+     *            snapshot of the board to reconcile
+     *
+     * @return the plan of the board, computed on the calling thread
+     */
+    public static ReconciliationPlan reconcileBoard(BoardSnapshot board) {
+        checkNotNull(board, "board:null");
+        ReconciliationPlan plan = new ReconciliationPlan(board.getBoardId());
+
+        int cardCount = board.getCardCount();
+        long[] cardKeys = new long[cardCount];
+        for (int i = 0; i < cardCount; i++) {
+            cardKeys[i] = key(board.getListId(i), board.getIdShort(i));
+        }
+        int[] cardOrder = sortedOrder(cardKeys, cardCount);
+
+        int[] branchIndexes = new int[board.getBranchCount()];
+        long[] branchKeys = new long[board.getBranchCount()];
+        int branchCount = 0;
+        for (int i = 0; i < board.getBranchCount(); i++) {
+            int idShort = BranchNames.parseIdShort(board.getBranchName(i));
+            if (idShort != BranchNames.UNMANAGED) {
+                branchIndexes[branchCount] = i;
+                branchKeys[branchCount++] = key(board.getBranchRepoId(i), idShort);
+            }
+        }
+        int[] branchOrder = sortedOrder(branchKeys, branchCount);
+
+        int c = 0;
+        int b = 0;
+        while (c < cardCount || b < branchCount) {
+            long cardKey = c < cardCount ? cardKeys[cardOrder[c]] : Long.MAX_VALUE;
+            long branchKey = b < branchCount ? branchKeys[branchOrder[b]] : Long.MAX_VALUE;
+            if (c < cardCount && (b == branchCount || cardKey < branchKey)) {
+                int card = cardOrder[c++];
+                plan.add(ActionType.CREATE, board.getListName(card),
+                        BranchNames.forCard(board.getIdShort(card), board.getCardName(card)), null,
+                        board.getCardId(card));
+            } else if (c == cardCount || branchKey < cardKey) {
+                int branch = branchIndexes[branchOrder[b++]];
+                plan.add(ActionType.ORPHAN, board.getBranchRepo(branch), board.getBranchName(branch), null, null);
+            } else {
+                int end = b;
+                while (end < branchCount && branchKeys[branchOrder[end]] == cardKey) {
+                    end++;
+                }
+                matchBranches(board, plan, cardOrder[c++], branchIndexes, branchOrder, b, end);
+                b = end;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Keeps the branch of the card named after the card, or renames the first
+     * one, and flags the others as orphaned
+     */
+    private static void matchBranches(BoardSnapshot board, ReconciliationPlan plan, int card, int[] branchIndexes,
+            int[] branchOrder, int start, int end) {
+        String desired = BranchNames.forCard(board.getIdShort(card), board.getCardName(card));
+        int kept = -1;
+        for (int i = start; i < end && kept < 0; i++) {
+            if (board.getBranchName(branchIndexes[branchOrder[i]]).equals(desired)) {
+                kept = i;
+            }
+        }
+        if (kept < 0) {
+            kept = start;
+            int branch = branchIndexes[branchOrder[start]];
+            plan.add(ActionType.RENAME, board.getBranchRepo(branch), board.getBranchName(branch), desired,
+                    board.getCardId(card));
+        }
+        for (int i = start; i < end; i++) {
+            if (i != kept) {
+                int branch = branchIndexes[branchOrder[i]];
+                plan.add(ActionType.ORPHAN, board.getBranchRepo(branch), board.getBranchName(branch), null, null);
+            }
+        }
+    }
+
+    private static long key(int repoId, int idShort) {
+        return ((long) repoId << 32) | (idShort & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Stable bottom-up merge sort of the positions 0..count-1 by key, on
+     * primitive arrays so that nothing is boxed
+     *
+     * @return the positions in ascending order of their key
+     */
+    static int[] sortedOrder(long[] keys, int count) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count - width; low += 2 * width) {
+                int middle = low + width;
+                int high = Math.min(low + 2 * width, count);
+                if (keys[order[middle - 1]] <= keys[order[middle]]) {
+                    continue;
+                }
+                int left = low;
+                int right = middle;
+                int out = low;
+                while (left < middle && right < high) {
+                    buffer[out++] = keys[order[right]] < keys[order[left]] ? order[right++] : order[left++];
+                }
+                while (left < middle) {
+                    buffer[out++] = order[left++];
+                }
+                while (right < high) {
+                    buffer[out++] = order[right++];
+                }
+                System.arraycopy(buffer, low, order, low, high - low);
+            }
+        }
+        return order;
+    }
+
+    private static final class BoardsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BoardSnapshot[] boards;
+        private final ReconciliationPlan[] plans;
+        private final int start;
+        private final int end;
+
+        BoardsTask(BoardSnapshot[] boards, ReconciliationPlan[] plans, int start, int end) {
+            this.boards = boards;
+            this.plans = plans;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start == 1) {
+                plans[start] = reconcileBoard(boards[start]);
+            } else if (end > start) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new BoardsTask(boards, plans, start, middle), new BoardsTask(boards, plans, middle, end));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.trello;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Branches to create, rename and flag as orphaned so that the Github repos
+ * of a board match its Trello cards, computed by {@link ReconciliationEngine}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class ReconciliationPlan {
+
+    /**
+     * Kind of change to a branch
+     */
+    public enum ActionType {
+        /**
+         * The card has no branch yet
+         */
+        CREATE,
+        /**
+         * The card was renamed since its branch was created
+         */
+        RENAME,
+        /**
+         * The branch follows the naming convention but its card is gone or
+         * already has another branch
+         */
+        ORPHAN
+    }
+
+    /**
+     * One change to a branch of a repo
+     */
+    public static final class Action {
+
+        private final ActionType type;
+        private final String repoName;
+        private final String branchName;
+        private final String newBranchName;
+        private final String cardId;
+
+        Action(ActionType type, String repoName, String branchName, String newBranchName, String cardId) {
+            this.type = type;
+            this.repoName = repoName;
+            this.branchName = branchName;
+            this.newBranchName = newBranchName;
+            this.cardId = cardId;
+        }
+
+        public ActionType getType() {
+            return type;
+        }
+
+        public String getRepoName() {
+            return repoName;
+        }
+
+        /**
+         * @return the branch to create, rename or flag
+         */
+        public String getBranchName() {
+            return branchName;
+        }
+
+        /**
+         * @return the new name of a renamed branch, null for other actions
+         */
+        public String getNewBranchName() {
+            return newBranchName;
+        }
+
+        /**
+         * @return the id of the card, null for an orphaned branch
+         */
+        public String getCardId() {
+            return cardId;
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + repoName + "/" + branchName + (newBranchName == null ? "" : " -> " + newBranchName);
+        }
+    }
+
+    private final String boardId;
+    private final List<Action> actions = new ArrayList<Action>();
+
+    ReconciliationPlan(String boardId) {
+        this.boardId = checkNotNull(boardId, "boardId:null");
+    }
+
+    void add(ActionType type, String repoName, String branchName, String newBranchName, String cardId) {
+        actions.add(new Action(type, repoName, branchName, newBranchName, cardId));
+    }
+
+    public String getBoardId() {
+        return boardId;
+    }
+
+    /**
+     * @return every action, ordered by repo and card number
+     */
+    public List<Action> getActions() {
+        return Collections.unmodifiableList(actions);
+    }
+
+    /**
+     * @param type
+     *            kind of action
+     *
+     * @return the actions of that kind
+     */
+    public List<Action> getActions(ActionType type) {
+        List<Action> filtered = new ArrayList<Action>();
+        for (Action action : actions) {
+            if (action.getType() == type) {
+                filtered.add(action);
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * @return true when the repos already match the board
+     */
+    public boolean isEmpty() {
+        return actions.isEmpty();
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.trello;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A single request/response pair captured by a {@link TrafficRecorder}
+ * and served back by a {@link ReplayServer}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class RecordedExchange {
+
+    private final String method;
+    private final String url;
+    private final int responseCode;
+    private final Map<String, String> headers;
+    private final byte[] body;
+    private final long startOffsetNanos;
+    private final long durationNanos;
+
+    /**
+     * @param method
+     *            HTTP method of the request, eg: GET
+     * @param url
+     *            URL the request was sent to
+     * @param responseCode
+     *            HTTP response code returned by the API
+     * @param headers
+     *            response headers, multiple values are joined with ", ".
+     *            Header names are looked up ignoring case
+     * @param body
+     *            raw response body, empty when the API returned no content
+     * @param startOffsetNanos
+     *            time the request started, relative to the start of the recording
+     * @param durationNanos
+     *            time taken by the API to answer the request
+     *
+     */
+    RecordedExchange(String method, String url, int responseCode, Map<String, String> headers, byte[] body,
+            long startOffsetNanos, long durationNanos) {
+        this.method = checkNotNull(method, "method:null");
+        this.url = checkNotNull(url, "url:null");
+        this.responseCode = responseCode;
+        Map<String, String> caseInsensitiveHeaders = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+        caseInsensitiveHeaders.putAll(checkNotNull(headers, "headers:null"));
+        this.headers = Collections.unmodifiableMap(caseInsensitiveHeaders);
+        this.body = checkNotNull(body, "body:null");
+        this.startOffsetNanos = startOffsetNanos;
+        this.durationNanos = durationNanos;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return the raw response body, the returned array must not be modified
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    public long getStartOffsetNanos() {
+        return startOffsetNanos;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+}
@@ -0,0 +1,328 @@
+package com.trello;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Local HTTP server that serves back the exchanges captured by a
+ * {@link TrafficRecorder}, so that sync runs can be load tested and profiled
+ * without talking to Trello or Github
+ *
+ * A recorded URL such as https://api.github.com/repos/a/b is served at
+ * http://127.0.0.1:port/api.github.com/repos/a/b, see {@link #replayUrl(String)}.
+ * When the same URL was recorded several times its responses are served in
+ * recorded order and then start over. The key and token query parameters a
+ * Trello {@link Credential} adds to a request are ignored when it is matched
+ * to a recording.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class ReplayServer implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplayServer.class);
+    private static final String[] SKIPPED_HEADERS = { "Content-Length", "Transfer-Encoding", "Connection" };
+    private static final String[] CREDENTIAL_PARAMETERS = { "key", "token" };
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private final Map<String, Replay> replays = new HashMap<String, Replay>();
+    private volatile double speedMultiplier = 1.0;
+    private volatile long injectedLatencyMillis;
+    private volatile double errorRate;
+    private volatile HttpResponseCode injectedError = HttpResponseCode.HTTP_UNAVAILABLE;
+    private Random random = new Random();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param exchanges
+     *            exchanges to serve, usually read with {@link TrafficLog#read(File)}
+     *
+     */
+    public ReplayServer(List<RecordedExchange> exchanges) {
+        checkNotNull(exchanges, "exchanges:null");
+        for (RecordedExchange exchange : exchanges) {
+            String key = replayPath(exchange.getUrl());
+            Replay replay = replays.get(key);
+            if (replay == null) {
+                replay = new Replay();
+                replays.put(key, replay);
+            }
+            replay.exchanges.add(exchange);
+        }
+    }
+
+    /**
+     * @param speedMultiplier
+     *            how much faster than recorded the responses are served,
+     *            2.0 halves the recorded latency and
+     *            {@link Double#POSITIVE_INFINITY} serves without any delay
+     */
+    public void setSpeedMultiplier(double speedMultiplier) {
+        checkArgument(speedMultiplier > 0, "speedMultiplier:not positive");
+        this.speedMultiplier = speedMultiplier;
+    }
+
+    /**
+     * @param injectedLatencyMillis
+     *            delay added to every response on top of the recorded latency,
+     *            can be changed while the server is running
+     */
+    public void setInjectedLatencyMillis(long injectedLatencyMillis) {
+        checkArgument(injectedLatencyMillis >= 0, "injectedLatencyMillis:negative");
+        this.injectedLatencyMillis = injectedLatencyMillis;
+    }
+
+    /**
+     * @param errorRate
+     *            fraction of the requests, between 0 and 1, answered with the
+     *            given error instead of the recorded response
+     * @param injectedError
+     *            response code of the injected errors
+     */
+    public void setErrorRate(double errorRate, HttpResponseCode injectedError) {
+        checkArgument(errorRate >= 0 && errorRate <= 1, "errorRate:out of range");
+        checkNotNull(injectedError, "injectedError:null");
+        checkArgument(injectedError != HttpResponseCode.HTTP_UNKNOWN, "injectedError:unknown");
+        this.injectedError = injectedError;
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @param seed
+     *            seed for the injected errors so that a run can be reproduced
+     */
+    public synchronized void setSeed(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Starts serving on an ephemeral port of the loopback interface
+     *
+     * @throws IOException
+     *             if the server cannot be bound
+     */
+    public void start() throws IOException {
+        start(0);
+    }
+
+    /**
+     * @param port
+     *            port of the loopback interface to serve on, 0 for an ephemeral port
+     *
+     * @throws IOException
+     *             if the server cannot be bound
+     */
+    public synchronized void start(int port) throws IOException {
+        checkState(server == null, "server:already started");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", new ReplayHandler());
+        server.start();
+        LOGGER.info("Replaying {} urls on port {}", replays.size(), getPort());
+    }
+
+    /**
+     * @return the port the server is bound to
+     */
+    public synchronized int getPort() {
+        checkState(server != null, "server:not started");
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @param recordedUrl
+     *            URL as it was recorded, eg: https://api.github.com/
+     *
+     * @return the URL serving the recorded responses on this server
+     */
+    public URL replayUrl(String recordedUrl) {
+        try {
+            return new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), getPort(),
+                    replayPath(recordedUrl));
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException("Could not create new URL", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    private static String replayPath(String recordedUrl) {
+        try {
+            URL url = new URL(recordedUrl);
+            String path = url.getPath().isEmpty() ? "/" : url.getPath();
+            return replayKey("/" + url.getHost() + path, url.getQuery());
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("recordedUrl:invalid", e);
+        }
+    }
+
+    /**
+     * @return the path and query a request is matched on, without the
+     *         parameters carrying a credential
+     */
+    private static String replayKey(String path, String query) {
+        if (query == null) {
+            return path;
+        }
+        StringBuilder key = new StringBuilder(path);
+        char separator = '?';
+        for (String parameter : query.split("&")) {
+            if (!parameter.isEmpty() && !isCredentialParameter(parameter)) {
+                key.append(separator).append(parameter);
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean isCredentialParameter(String parameter) {
+        int equals = parameter.indexOf('=');
+        String name = equals < 0 ? parameter : parameter.substring(0, equals);
+        for (String credentialParameter : CREDENTIAL_PARAMETERS) {
+            if (credentialParameter.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized boolean nextIsError() {
+        return errorRate > 0 && random.nextDouble() < errorRate;
+    }
+
+    private void delay(RecordedExchange exchange) throws InterruptedException {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(injectedLatencyMillis);
+        if (exchange != null && !Double.isInfinite(speedMultiplier)) {
+            nanos += (long) (exchange.getDurationNanos() / speedMultiplier);
+        }
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+
+    private static final class Replay {
+        private final List<RecordedExchange> exchanges = new ArrayList<RecordedExchange>();
+        private final AtomicInteger next = new AtomicInteger();
+
+        private RecordedExchange next() {
+            return exchanges.get((next.getAndIncrement() & Integer.MAX_VALUE) % exchanges.size());
+        }
+    }
+
+    private final class ReplayHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange httpExchange) throws IOException {
+            try {
+                Replay replay = replays.get(replayKey(httpExchange.getRequestURI().getRawPath(),
+                        httpExchange.getRequestURI().getRawQuery()));
+                RecordedExchange exchange = replay == null ? null : replay.next();
+                delay(exchange);
+                if (nextIsError()) {
+                    send(httpExchange, injectedError.getCode(), new byte[0]);
+                } else if (exchange == null) {
+                    send(httpExchange, HttpResponseCode.HTTP_NOT_FOUND.getCode(), new byte[0]);
+                } else {
+                    for (Map.Entry<String, String> header : exchange.getHeaders().entrySet()) {
+                        if (!isSkipped(header.getKey())) {
+                            httpExchange.getResponseHeaders().add(header.getKey(), header.getValue());
+                        }
+                    }
+                    send(httpExchange, exchange.getResponseCode(), exchange.getBody());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                httpExchange.close();
+            }
+        }
+
+        private boolean isSkipped(String header) {
+            for (String skipped : SKIPPED_HEADERS) {
+                if (skipped.equalsIgnoreCase(header)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void send(HttpExchange httpExchange, int code, byte[] body) throws IOException {
+            if (body.length == 0) {
+                httpExchange.sendResponseHeaders(code, -1);
+                return;
+            }
+            httpExchange.sendResponseHeaders(code, body.length);
+            OutputStream out = httpExchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+    }
+
+    /**
+     * Turns off Nagle's algorithm for the HTTP servers of the JVM, without it
+     * the headers and the body of a response are held back and every replayed
+     * request waits for a delayed ACK. The setting is JVM wide and only read
+     * when the first server is created, so it is left to the processes
+     * dedicated to replaying: {@link #main(String[])} and the tests.
+     */
+    static void disableNagle() {
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+    }
+
+    /**
+     * Serves a traffic log until the process is stopped
+     *
+     * @param args
+     *            log file, port and optionally the speed multiplier
+     *
+     * @throws IOException
+     *             if the log cannot be read or the server cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        checkArgument(args.length >= 2, "usage: ReplayServer <log file> <port> [speed multiplier]");
+        disableNagle();
+        ReplayServer replayServer = new ReplayServer(TrafficLog.read(new File(args[0])));
+        if (args.length > 2) {
+            replayServer.setSpeedMultiplier(Double.parseDouble(args[2]));
+        }
+        replayServer.start(Integer.parseInt(args[1]));
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.trello;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets another thread cancel a request made with
+ * {@link ApiConnection#fetch(RequestHandle)}
+ *
+ * Interrupting the thread of a request does not stop a blocking read of its
+ * socket, so cancelling disconnects the {@link HttpURLConnection} of the
+ * request instead and the request ends with a
+ * {@link java.util.concurrent.CancellationException}. A request sent as
+ * several copies, eg: a hedged request, gives each copy a handle of its own
+ * from {@link #child()} so that cancelling the request cancels every copy.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class RequestHandle {
+
+    private HttpURLConnection connection;
+    private final List<RequestHandle> children = new ArrayList<RequestHandle>();
+    private boolean cancelled;
+
+    /**
+     * Disconnects the request, or prevents it from connecting if it has not
+     * started yet
+     */
+    public void cancel() {
+        HttpURLConnection attached;
+        List<RequestHandle> cancelledChildren;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            attached = connection;
+            cancelledChildren = new ArrayList<RequestHandle>(children);
+            children.clear();
+        }
+        if (attached != null) {
+            attached.disconnect();
+        }
+        for (RequestHandle child : cancelledChildren) {
+            child.cancel();
+        }
+    }
+
+    /**
+     * @return a handle cancelled along with this one, already cancelled if
+     *         this one is, that can also be cancelled on its own
+     */
+    RequestHandle child() {
+        RequestHandle child = new RequestHandle();
+        synchronized (this) {
+            if (!cancelled) {
+                children.add(child);
+                return child;
+            }
+        }
+        child.cancel();
+        return child;
+    }
+
+    /**
+     * @return true once {@link #cancel()} was called
+     */
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @param connection
+     *            {@link HttpURLConnection} the request is made on
+     *
+     * @return false if the request was already cancelled
+     */
+    synchronized boolean attach(HttpURLConnection connection) {
+        this.connection = connection;
+        return !cancelled;
+    }
+
+}
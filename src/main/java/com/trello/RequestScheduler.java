@@ -0,0 +1,338 @@
+package com.trello;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Schedules requests onto a fixed number of concurrent connections so that
+ * interactive work, such as creating the branch of a card that was just
+ * created, is not starved by background reconciliation sweeps
+ *
+ * Interactive requests are always dispatched before background requests.
+ * Background requests are held back while interactive requests are queued and
+ * may never occupy the connections reserved for interactive work, so an
+ * interactive request waits at most for a reserved connection to free up
+ * instead of for a whole sweep. Within a priority, requests are shared
+ * between tenants, eg: boards, by weighted fair queuing: a tenant with
+ * weight 2 gets twice the dispatches of a tenant with weight 1 while both
+ * have queued requests. A request submitted as an {@link ApiFetcher} is
+ * sent through a {@link RequestHandle}, so cancelling its future with
+ * interruption disconnects it.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class RequestScheduler implements Closeable {
+
+    /**
+     * Priority class of a request
+     */
+    public enum Priority {
+        /**
+         * User visible requests, eg: triggered by a Trello webhook
+         */
+        INTERACTIVE,
+        /**
+         * Bulk requests, eg: the nightly reconciliation sweep
+         */
+        BACKGROUND
+    }
+
+    private final int capacity;
+    private final int reservedForInteractive;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final FairQueue interactive = new FairQueue();
+    private final FairQueue background = new FairQueue();
+    private final Map<String, Integer> weights = new HashMap<String, Integer>();
+    private final List<Thread> workers = new ArrayList<Thread>();
+    private int runningBackground;
+    private long sequence;
+    private boolean closed;
+
+    /**
+     * @param capacity
+     *            number of requests running at the same time
+     * @param reservedForInteractive
+     *            number of those that background requests may never use,
+     *            less than the capacity
+     */
+    public RequestScheduler(int capacity, int reservedForInteractive) {
+        checkArgument(capacity > 0, "capacity:not positive");
+        checkArgument(reservedForInteractive >= 0 && reservedForInteractive < capacity,
+                "reservedForInteractive:out of range");
+        this.capacity = capacity;
+        this.reservedForInteractive = reservedForInteractive;
+        for (int i = 0; i < capacity; i++) {
+            Thread worker = new Thread(new Worker(), "trello-request-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * @param tenant
+     *            tenant, eg: a board id
+     * @param weight
+     *            share of the tenant relative to the others, 1 by default
+     */
+    public void setWeight(String tenant, int weight) {
+        checkNotNull(tenant, "tenant:null");
+        checkArgument(weight > 0, "weight:not positive");
+        lock.lock();
+        try {
+            weights.put(tenant, weight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param priority
+     *            {@link Priority} of the request
+     * @param tenant
+     *            tenant the request is made for, eg: a board id
+     * @param fetcher
+     *            {@link ApiFetcher} to fetch, eg: an {@link ApiConnection} or
+     *            a {@link CredentialPool}, {@link HedgedRequestExecutor} or
+     *            {@link ConcurrencyLimiter} wrapping one
+     *
+     * @return the {@link ApiResponse} once the request ran
+     *
+     * @throws RejectedExecutionException
+     *             if the scheduler was closed
+     */
+    public Future<ApiResponse> submit(Priority priority, String tenant, final ApiFetcher fetcher) {
+        checkNotNull(fetcher, "fetcher:null");
+        final RequestHandle handle = new RequestHandle();
+        return submit(priority, tenant, new Callable<ApiResponse>() {
+            @Override
+            public ApiResponse call() {
+                return fetcher.fetch(null, handle);
+            }
+        }, handle);
+    }
+
+    /**
+     * @param priority
+     *            {@link Priority} of the request
+     * @param tenant
+     *            tenant the request is made for, eg: a board id
+     * @param request
+     *            request to run on one of the connections
+     *
+     * @return the result of the request once it ran
+     *
+     * @throws RejectedExecutionException
+     *             if the scheduler was closed
+     */
+    public <T> Future<T> submit(Priority priority, String tenant, Callable<T> request) {
+        return submit(priority, tenant, request, null);
+    }
+
+    private <T> Future<T> submit(Priority priority, String tenant, Callable<T> request, RequestHandle handle) {
+        checkNotNull(priority, "priority:null");
+        checkNotNull(tenant, "tenant:null");
+        checkNotNull(request, "request:null");
+        Task<T> task = new Task<T>(priority, request, handle);
+        lock.lock();
+        try {
+            if (closed) {
+                throw new RejectedExecutionException("scheduler:closed");
+            }
+            Integer weight = weights.get(tenant);
+            queue(priority).add(task, tenant, weight == null ? 1 : weight, sequence++);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        return task;
+    }
+
+    /**
+     * @param priority
+     *            {@link Priority} of the requests
+     *
+     * @return number of requests of that priority waiting for a connection
+     */
+    public int getQueued(Priority priority) {
+        lock.lock();
+        try {
+            return queue(priority).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the connections and cancels the queued requests, running requests
+     * are interrupted
+     */
+    @Override
+    public void close() {
+        List<Task<?>> cancelled = new ArrayList<Task<?>>();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            interactive.drainTo(cancelled);
+            background.drainTo(cancelled);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Task<?> task : cancelled) {
+            task.cancel(false);
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private FairQueue queue(Priority priority) {
+        return priority == Priority.INTERACTIVE ? interactive : background;
+    }
+
+    /**
+     * @return the next task allowed to run or null, called with the lock held
+     */
+    private Task<?> next() {
+        if (!interactive.isEmpty()) {
+            return interactive.poll();
+        }
+        if (!background.isEmpty() && runningBackground < capacity - reservedForInteractive) {
+            runningBackground++;
+            return background.poll();
+        }
+        return null;
+    }
+
+    private final class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (true) {
+                Task<?> task = null;
+                lock.lock();
+                try {
+                    while (!closed && (task = next()) == null) {
+                        changed.awaitUninterruptibly();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                try {
+                    task.run();
+                } finally {
+                    if (task.priority == Priority.BACKGROUND) {
+                        lock.lock();
+                        try {
+                            runningBackground--;
+                            changed.signal();
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class Task<T> extends FutureTask<T> {
+
+        private final Priority priority;
+        private final RequestHandle handle;
+        private double finishTag;
+        private long sequence;
+
+        Task(Priority priority, Callable<T> request, RequestHandle handle) {
+            super(request);
+            this.priority = priority;
+            this.handle = handle;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && mayInterruptIfRunning && handle != null) {
+                handle.cancel();
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * Weighted fair queue of one priority, not thread safe
+     *
+     * Every tenant is given a virtual finish tag per request, one over its
+     * weight after the later of its previous tag and the tag of the last
+     * dispatched request. Requests are dispatched in order of their tags and
+     * then of their submission.
+     */
+    private static final class FairQueue {
+
+        private static final Comparator<Task<?>> BY_FINISH_TAG = new Comparator<Task<?>>() {
+            @Override
+            public int compare(Task<?> a, Task<?> b) {
+                int byTag = Double.compare(a.finishTag, b.finishTag);
+                return byTag != 0 ? byTag : Long.compare(a.sequence, b.sequence);
+            }
+        };
+
+        private final PriorityQueue<Task<?>> tasks = new PriorityQueue<Task<?>>(16, BY_FINISH_TAG);
+        private final Map<String, Double> lastFinishTags = new HashMap<String, Double>();
+        private double virtualTime;
+
+        void add(Task<?> task, String tenant, int weight, long sequence) {
+            Double lastFinishTag = lastFinishTags.get(tenant);
+            double start = lastFinishTag == null ? virtualTime : Math.max(virtualTime, lastFinishTag);
+            task.finishTag = start + 1.0 / weight;
+            task.sequence = sequence;
+            lastFinishTags.put(tenant, task.finishTag);
+            tasks.add(task);
+        }
+
+        Task<?> poll() {
+            Task<?> task = tasks.poll();
+            virtualTime = task.finishTag;
+            if (tasks.isEmpty()) {
+                lastFinishTags.clear();
+            }
+            return task;
+        }
+
+        boolean isEmpty() {
+            return tasks.isEmpty();
+        }
+
+        int size() {
+            return tasks.size();
+        }
+
+        void drainTo(List<Task<?>> drained) {
+            drained.addAll(tasks);
+            tasks.clear();
+        }
+    }
+
+}
@@ -0,0 +1,220 @@
+package com.trello;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Body of a response held in buffers of a {@link ByteBufferPool}, returned by
+ * {@link ApiConnection#fetchBody(Credential, RequestHandle)}
+ *
+ * The bytes are handed to a parser with {@link #getBuffers()} or to a cache
+ * file with {@link #writeTo(WritableByteChannel)} without being copied, and
+ * decoded with {@link #asString()} only when text is needed. The buffers go
+ * back to the pool with {@link #release()}, after which the body cannot be
+ * read any more.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class ResponseBody implements Closeable {
+
+    private final HttpResponseCode responseCode;
+    private final ByteBufferPool pool;
+    private final List<ByteBuffer> buffers;
+    private final long length;
+    private boolean released;
+
+    private ResponseBody(HttpResponseCode responseCode, ByteBufferPool pool, List<ByteBuffer> buffers) {
+        this.responseCode = responseCode;
+        this.pool = pool;
+        this.buffers = buffers;
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            total += buffer.remaining();
+        }
+        this.length = total;
+    }
+
+    /**
+     * @param responseCode
+     *            {@link HttpResponseCode} of a response without body
+     *
+     * @return a body of no bytes holding no buffer
+     */
+    static ResponseBody empty(HttpResponseCode responseCode) {
+        return new ResponseBody(responseCode, null, Collections.<ByteBuffer> emptyList());
+    }
+
+    /**
+     * Reads a stream to its end into buffers of the pool, chaining a buffer of
+     * the next size class whenever one is full rather than copying into a
+     * larger one
+     *
+     * @param responseCode
+     *            {@link HttpResponseCode} of the response
+     * @param stream
+     *            body of the response, not closed
+     * @param pool
+     *            {@link ByteBufferPool} the buffers are taken from
+     * @param lengthHint
+     *            expected length of the body, eg: its Content-Length, or a
+     *            negative value if unknown
+     *
+     * @return the {@link ResponseBody}
+     *
+     * @throws IOException
+     *             if the stream cannot be read, the buffers are released
+     */
+    static ResponseBody read(HttpResponseCode responseCode, InputStream stream, ByteBufferPool pool, long lengthHint)
+            throws IOException {
+        List<ByteBuffer> buffers = new ArrayList<ByteBuffer>(2);
+        ByteBuffer buffer = pool.acquire((int) Math.min(Math.max(lengthHint, 0), Integer.MAX_VALUE));
+        buffers.add(buffer);
+        long total = 0;
+        try {
+            while (true) {
+                if (!buffer.hasRemaining()) {
+                    // a body of the expected length fills its buffer exactly,
+                    // probe the end of the stream before taking another one
+                    boolean expectedEnd = lengthHint >= 0 && total >= lengthHint;
+                    int next = expectedEnd ? stream.read() : 0;
+                    if (next < 0) {
+                        break;
+                    }
+                    buffer = pool.acquire(ByteBufferPool.nextSize(buffer.capacity()));
+                    buffers.add(buffer);
+                    if (expectedEnd) {
+                        buffer.put((byte) next);
+                        total++;
+                    }
+                }
+                int read = stream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                if (read < 0) {
+                    break;
+                }
+                if (read == 0) {
+                    throw new IOException("Underlying input stream returned zero bytes");
+                }
+                buffer.position(buffer.position() + read);
+                total += read;
+            }
+        } catch (IOException e) {
+            for (ByteBuffer acquired : buffers) {
+                pool.release(acquired);
+            }
+            throw e;
+        }
+        for (ByteBuffer filled : buffers) {
+            filled.flip();
+        }
+        return new ResponseBody(responseCode, pool, buffers);
+    }
+
+    public HttpResponseCode getResponseCode() {
+        return responseCode;
+    }
+
+    /**
+     * @return the number of bytes of the body
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @return read-only views of the buffers holding the body, in order
+     */
+    public List<ByteBuffer> getBuffers() {
+        checkState(!released, "body:released");
+        List<ByteBuffer> views = new ArrayList<ByteBuffer>(buffers.size());
+        for (ByteBuffer buffer : buffers) {
+            views.add(buffer.asReadOnlyBuffer());
+        }
+        return views;
+    }
+
+    /**
+     * @return the body decoded as UTF-8
+     */
+    public String asString() {
+        checkState(!released, "body:released");
+        if (buffers.isEmpty()) {
+            return "";
+        }
+        if (buffers.size() == 1) {
+            ByteBuffer buffer = buffers.get(0);
+            return new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), UTF_8);
+        }
+        return new String(toByteArray(), UTF_8);
+    }
+
+    /**
+     * @return a copy of the bytes of the body
+     */
+    public byte[] toByteArray() {
+        checkState(!released, "body:released");
+        checkState(length <= Integer.MAX_VALUE, "body:too large");
+        byte[] bytes = new byte[(int) length];
+        int offset = 0;
+        for (ByteBuffer buffer : buffers) {
+            buffer.duplicate().get(bytes, offset, buffer.remaining());
+            offset += buffer.remaining();
+        }
+        return bytes;
+    }
+
+    /**
+     * @param channel
+     *            channel the body is written to, eg: a cache file
+     *
+     * @return the number of bytes written
+     *
+     * @throws IOException
+     *             if the channel cannot be written to
+     */
+    public long writeTo(WritableByteChannel channel) throws IOException {
+        checkNotNull(channel, "channel:null");
+        checkState(!released, "body:released");
+        long written = 0;
+        for (ByteBuffer buffer : buffers) {
+            ByteBuffer view = buffer.duplicate();
+            while (view.hasRemaining()) {
+                written += channel.write(view);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Returns the buffers to the pool, releasing twice has no effect
+     */
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+        }
+    }
+
+    /**
+     * Same as {@link #release()}
+     */
+    @Override
+    public void close() {
+        release();
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.trello;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * In-memory store of the {@link BoardSnapshot} of every board of the
+ * organisation, keyed by the packed board id
+ *
+ * The boards of a store share one {@link StringPool}, so a list, label or repo
+ * name repeated across boards is kept once for the whole organisation.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class SnapshotStore {
+
+    private final StringPool pool = new StringPool();
+    private final TrelloIdMap boardIndex = new TrelloIdMap();
+    private final List<BoardSnapshot> boards = new ArrayList<BoardSnapshot>();
+
+    /**
+     * @param boardId
+     *            24 hex character id of the board
+     *
+     * @return an empty {@link BoardSnapshot} sharing the pool of this store, it is
+     *         not visible in the store until it is passed to {@link #put(BoardSnapshot)}
+     */
+    public BoardSnapshot createBoard(String boardId) {
+        return new BoardSnapshot(pool, boardId);
+    }
+
+    /**
+     * Publishes a filled snapshot, replacing the previous snapshot of the same board
+     *
+     * @param board
+     *            snapshot created by {@link #createBoard(String)}
+     */
+    public synchronized void put(BoardSnapshot board) {
+        checkNotNull(board, "board:null");
+        board.trimToSize();
+        int index = boardIndex.get(board.getBoardHigh(), board.getBoardLow());
+        if (index == TrelloIdMap.ABSENT) {
+            boardIndex.put(board.getBoardHigh(), board.getBoardLow(), boards.size());
+            boards.add(board);
+        } else {
+            boards.set(index, board);
+        }
+    }
+
+    /**
+     * @param boardId
+     *            24 hex character id of the board
+     *
+     * @return the snapshot of the board or null when it was never put
+     */
+    public synchronized BoardSnapshot get(String boardId) {
+        int index = boardIndex.get(TrelloId.high(boardId), TrelloId.low(boardId));
+        return index == TrelloIdMap.ABSENT ? null : boards.get(index);
+    }
+
+    /**
+     * @return the snapshots of every board, in the order they were first put
+     */
+    public synchronized List<BoardSnapshot> getBoards() {
+        return Collections.unmodifiableList(new ArrayList<BoardSnapshot>(boards));
+    }
+
+    /**
+     * @return the {@link StringPool} shared by the boards
+     */
+    public StringPool getStringPool() {
+        return pool;
+    }
+
+}
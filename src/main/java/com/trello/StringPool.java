@@ -0,0 +1,130 @@
+package com.trello;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Intern pool for the strings repeated across a {@link SnapshotStore} such as
+ * list names, label names and repo names
+ *
+ * Every distinct string is kept once and given a dense int id, so that a
+ * snapshot stores a 4 byte id per card instead of a reference to its own copy.
+ * The ids are looked up in an open addressing table of ints rather than a
+ * {@link java.util.HashMap} to avoid an entry object per string.
+ *
+ * Interning and lookups by string take the lock of the pool, but
+ * {@link #get(int)} does not: the strings are kept in an append-only array
+ * published through the volatile size, so the workers reading a snapshot
+ * never contend with each other.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class StringPool {
+
+    private static final int EMPTY = -1;
+
+    private volatile String[] values = new String[16];
+    private int[] table = newTable(32);
+    private volatile int size;
+
+    /**
+     * @param value
+     *            string to intern, cannot be null
+     *
+     * @return the id of the string, the same for every equal string
+     */
+    public synchronized int intern(String value) {
+        checkNotNull(value, "value:null");
+        int mask = table.length - 1;
+        int slot = mix(value.hashCode()) & mask;
+        while (table[slot] != EMPTY) {
+            if (values[table[slot]].equals(value)) {
+                return table[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = size;
+        String[] current = values;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, id * 2);
+        }
+        current[id] = value;
+        values = current;
+        // publishes the string, read before the array by get()
+        size = id + 1;
+        table[slot] = id;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * @param value
+     *            string to look up
+     *
+     * @return the id of the string, -1 when it was never interned
+     */
+    public synchronized int find(String value) {
+        checkNotNull(value, "value:null");
+        int mask = table.length - 1;
+        int slot = mix(value.hashCode()) & mask;
+        while (table[slot] != EMPTY) {
+            if (values[table[slot]].equals(value)) {
+                return table[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return EMPTY;
+    }
+
+    /**
+     * @param id
+     *            id returned by {@link #intern(String)}
+     *
+     * @return the canonical instance of the interned string
+     */
+    public String get(int id) {
+        checkElementIndex(id, size, "id");
+        return values[id];
+    }
+
+    /**
+     * @return number of distinct strings in the pool
+     */
+    public int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        int[] newTable = newTable(capacity);
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(values[id].hashCode()) & mask;
+            while (newTable[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            newTable[slot] = id;
+        }
+        table = newTable;
+    }
+
+    private static int[] newTable(int capacity) {
+        int[] newTable = new int[capacity];
+        Arrays.fill(newTable, EMPTY);
+        return newTable;
+    }
+
+    /**
+     * Spreads the bits of String.hashCode(), which are poor in the low bits
+     * for short strings with a common prefix
+     */
+    static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.trello;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Binary log format shared by {@link TrafficRecorder} and {@link ReplayServer}
+ *
+ * The log starts with a magic number and a version byte, followed by one
+ * entry per {@link RecordedExchange}. Lengths, codes and timings are written
+ * as variable length integers and strings as UTF-8 so that a typical API
+ * exchange costs only a few bytes on top of its body.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class TrafficLog {
+
+    static final int MAGIC = 0x54524C47;
+    static final int VERSION = 1;
+
+    private TrafficLog() {
+    }
+
+    /**
+     * @param file
+     *            a log written by {@link TrafficRecorder}
+     *
+     * @return every {@link RecordedExchange} in the order it was recorded
+     *
+     * @throws IOException
+     *             if the file cannot be read or is not a traffic log
+     *
+     */
+    public static List<RecordedExchange> read(File file) throws IOException {
+        checkNotNull(file, "file:null");
+        InputStream stream = null;
+        try {
+            stream = new FileInputStream(file);
+            return read(stream);
+        } finally {
+            closeQuietly(stream);
+        }
+    }
+
+    /**
+     * @param stream
+     *            stream positioned at the start of a traffic log, it is not closed
+     *
+     * @return every {@link RecordedExchange} in the order it was recorded
+     *
+     * @throws IOException
+     *             if the stream cannot be read or is not a traffic log
+     *
+     */
+    public static List<RecordedExchange> read(InputStream stream) throws IOException {
+        checkNotNull(stream, "stream:null");
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a traffic log");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported traffic log version " + version);
+        }
+        List<RecordedExchange> exchanges = new ArrayList<RecordedExchange>();
+        while (true) {
+            int first = in.read();
+            if (first < 0) {
+                return exchanges;
+            }
+            exchanges.add(readExchange(in, first));
+        }
+    }
+
+    private static RecordedExchange readExchange(DataInputStream in, int first) throws IOException {
+        String method = readString(in, (int) readVarLong(in, first));
+        String url = readString(in);
+        int responseCode = (int) readVarLong(in);
+        int headerCount = (int) readVarLong(in);
+        Map<String, String> headers = new LinkedHashMap<String, String>();
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(readString(in), readString(in));
+        }
+        byte[] body = new byte[(int) readVarLong(in)];
+        in.readFully(body);
+        long startOffsetNanos = readVarLong(in);
+        long durationNanos = readVarLong(in);
+        return new RecordedExchange(method, url, responseCode, headers, body, startOffsetNanos, durationNanos);
+    }
+
+    static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return readString(in, (int) readVarLong(in));
+    }
+
+    private static String readString(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            throw new EOFException("Truncated traffic log");
+        }
+        return readVarLong(in, first);
+    }
+
+    private static long readVarLong(DataInputStream in, int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int current = first;
+        while ((current & 0x80) != 0) {
+            current = in.readUnsignedByte();
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+
+}
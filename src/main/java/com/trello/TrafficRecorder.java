@@ -0,0 +1,152 @@
+package com.trello;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Joiner;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Captures the request/response pairs made through an {@link ApiConnection}
+ * into a {@link TrafficLog} so that they can be served back by a
+ * {@link ReplayServer}
+ *
+ * A recorder may be shared by several connections and threads
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class TrafficRecorder implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrafficRecorder.class);
+    private static final Joiner HEADER_VALUE_JOINER = Joiner.on(", ");
+
+    private final DataOutputStream out;
+    private final long recordingStartNanos;
+    private boolean closed;
+
+    /**
+     * @param stream
+     *            destination of the log, it is closed with the recorder
+     *
+     * @throws IOException
+     *             if the log header cannot be written
+     *
+     */
+    public TrafficRecorder(OutputStream stream) throws IOException {
+        checkNotNull(stream, "stream:null");
+        this.out = new DataOutputStream(new BufferedOutputStream(stream));
+        this.recordingStartNanos = System.nanoTime();
+        TrafficLog.writeHeader(out);
+    }
+
+    /**
+     * @param file
+     *            file the log is written to, an existing file is overwritten
+     *
+     * @return a new {@link TrafficRecorder} writing to the file
+     *
+     * @throws IOException
+     *             if the file cannot be created
+     *
+     */
+    public static TrafficRecorder open(File file) throws IOException {
+        checkNotNull(file, "file:null");
+        return new TrafficRecorder(new FileOutputStream(file));
+    }
+
+    /**
+     * Appends one exchange to the log. Failures to write are logged and
+     * never propagated to the caller so that capture cannot break a sync run
+     *
+     * @param method
+     *            HTTP method of the request
+     * @param url
+     *            URL the request was sent to
+     * @param responseCode
+     *            HTTP response code returned by the API
+     * @param headers
+     *            response headers as returned by {@link java.net.HttpURLConnection#getHeaderFields()},
+     *            may be null
+     * @param body
+     *            raw response body, may be empty
+     * @param startNanos
+     *            {@link System#nanoTime()} when the request started
+     * @param durationNanos
+     *            time taken to answer the request
+     *
+     */
+    void record(String method, String url, int responseCode, Map<String, List<String>> headers, byte[] body,
+            long startNanos, long durationNanos) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            try {
+                TrafficLog.writeString(out, method);
+                TrafficLog.writeString(out, url);
+                TrafficLog.writeVarLong(out, responseCode);
+                writeHeaders(headers);
+                TrafficLog.writeVarLong(out, body.length);
+                out.write(body);
+                TrafficLog.writeVarLong(out, Math.max(0L, startNanos - recordingStartNanos));
+                TrafficLog.writeVarLong(out, Math.max(0L, durationNanos));
+            } catch (IOException e) {
+                LOGGER.error("Could not record the exchange with {} : {}", url, e);
+            }
+        }
+    }
+
+    private void writeHeaders(Map<String, List<String>> headers) throws IOException {
+        int count = 0;
+        if (headers != null) {
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                if (header.getKey() != null && header.getValue() != null) {
+                    count++;
+                }
+            }
+        }
+        TrafficLog.writeVarLong(out, count);
+        if (count == 0) {
+            return;
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (header.getKey() != null && header.getValue() != null) {
+                TrafficLog.writeString(out, header.getKey());
+                TrafficLog.writeString(out, HEADER_VALUE_JOINER.join(header.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Flushes buffered exchanges to the underlying stream
+     *
+     * @throws IOException
+     *             if the stream cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        if (!closed) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+}
@@ -1,9 +1,12 @@
 package com.trello;
 
 public class TrelloBranch {
-	
+
+	private static final String DEFAULT_URL = "https://api.github.com/";
+
 	public static void main(String[] args) {
-		ApiConnection apiConnection = ApiConnectionFactory.INSTANCE.createApiConnection("https://api.github.com/");
+		String url = args.length > 0 ? args[0] : DEFAULT_URL;
+		ApiConnection apiConnection = ApiConnectionFactory.INSTANCE.createApiConnection(url);
 		String json = apiConnection.getApiData();
 		System.out.println(json);
 	}
@@ -0,0 +1,114 @@
+package com.trello;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Packs the 24 hex character ids of Trello boards and cards into primitives
+ *
+ * The first 16 characters are packed into a long and the last 8 into an int,
+ * 12 bytes instead of the 88 bytes of a 24 character String on a 64 bit JVM.
+ *
+ * @author Shruti Vangari
+ *
+ */
+public final class TrelloId {
+
+    static final int LENGTH = 24;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private TrelloId() {
+    }
+
+    /**
+     * @param id
+     *            24 hex character Trello id
+     *
+     * @return the first 16 characters of the id as a long
+     *
+     * @throws IllegalArgumentException
+     *             if the id is not 24 hex characters
+     */
+    public static long high(String id) {
+        checkId(id);
+        long high = 0;
+        for (int i = 0; i < 16; i++) {
+            high = (high << 4) | digit(id, i);
+        }
+        return high;
+    }
+
+    /**
+     * @param id
+     *            24 hex character Trello id
+     *
+     * @return the last 8 characters of the id as an int
+     *
+     * @throws IllegalArgumentException
+     *             if the id is not 24 hex characters
+     */
+    public static int low(String id) {
+        checkId(id);
+        int low = 0;
+        for (int i = 16; i < LENGTH; i++) {
+            low = (low << 4) | digit(id, i);
+        }
+        return low;
+    }
+
+    /**
+     * @param high
+     *            value returned by {@link #high(String)}
+     * @param low
+     *            value returned by {@link #low(String)}
+     *
+     * @return the id in its lower case 24 hex character form
+     */
+    public static String toString(long high, int low) {
+        char[] id = new char[LENGTH];
+        for (int i = 15; i >= 0; i--) {
+            id[i] = HEX[(int) (high & 0xF)];
+            high >>>= 4;
+        }
+        for (int i = LENGTH - 1; i >= 16; i--) {
+            id[i] = HEX[low & 0xF];
+            low >>>= 4;
+        }
+        return new String(id);
+    }
+
+    /**
+     * @param high
+     *            value returned by {@link #high(String)}
+     * @param low
+     *            value returned by {@link #low(String)}
+     *
+     * @return a well spread hash of the packed id
+     */
+    static int hash(long high, int low) {
+        long h = (high ^ (high >>> 32) ^ ((long) low * 0x9E3779B97F4A7C15L)) * 0xC2B2AE3D27D4EB4FL;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    private static void checkId(String id) {
+        checkNotNull(id, "id:null");
+        checkArgument(id.length() == LENGTH, "id:not a trello id");
+    }
+
+    /**
+     * Only ASCII hex digits, {@link Character#digit(char, int)} would also
+     * accept eg: fullwidth digits and map them onto the same id
+     */
+    private static int digit(String id, int index) {
+        char c = id.charAt(index);
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        checkArgument(c >= 'A' && c <= 'F', "id:not a trello id");
+        return c - 'A' + 10;
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.trello;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Open addressing map from a packed {@link TrelloId} to a non negative int,
+ * usually the index of a card or board in a columnar snapshot
+ *
+ * Keys and values live in parallel primitive arrays probed linearly, there is
+ * no entry object and no boxing. Not thread safe.
+ *
+ * @author Shruti Vangari
+ *
+ */
+final class TrelloIdMap {
+
+    static final int ABSENT = -1;
+
+    private long[] highs;
+    private int[] lows;
+    private int[] values;
+    private int size;
+
+    TrelloIdMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize
+     *            number of keys the map holds without resizing
+     */
+    TrelloIdMap(int expectedSize) {
+        checkArgument(expectedSize >= 0, "expectedSize:negative");
+        allocate(Math.max(16, Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) << 1));
+    }
+
+    /**
+     * @param high
+     *            {@link TrelloId#high(String)} of the key
+     * @param low
+     *            {@link TrelloId#low(String)} of the key
+     * @param value
+     *            non negative value
+     *
+     * @return the previous value of the key or {@link #ABSENT}
+     */
+    int put(long high, int low, int value) {
+        checkArgument(value >= 0, "value:negative");
+        int mask = values.length - 1;
+        int slot = TrelloId.hash(high, low) & mask;
+        while (values[slot] != ABSENT) {
+            if (highs[slot] == high && lows[slot] == low) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        highs[slot] = high;
+        lows[slot] = low;
+        values[slot] = value;
+        if (++size * 3 > values.length * 2) {
+            resize(values.length * 2);
+        }
+        return ABSENT;
+    }
+
+    /**
+     * @param high
+     *            {@link TrelloId#high(String)} of the key
+     * @param low
+     *            {@link TrelloId#low(String)} of the key
+     *
+     * @return the value of the key or {@link #ABSENT}
+     */
+    int get(long high, int low) {
+        int mask = values.length - 1;
+        int slot = TrelloId.hash(high, low) & mask;
+        while (values[slot] != ABSENT) {
+            if (highs[slot] == high && lows[slot] == low) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void allocate(int capacity) {
+        highs = new long[capacity];
+        lows = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, ABSENT);
+    }
+
+    private void resize(int capacity) {
+        long[] oldHighs = highs;
+        int[] oldLows = lows;
+        int[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != ABSENT) {
+                int slot = TrelloId.hash(oldHighs[i], oldLows[i]) & mask;
+                while (values[slot] != ABSENT) {
+                    slot = (slot + 1) & mask;
+                }
+                highs[slot] = oldHighs[i];
+                lows[slot] = oldLows[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+}
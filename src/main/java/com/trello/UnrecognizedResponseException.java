@@ -63,4 +63,23 @@ public class UnrecognizedResponseException extends RuntimeException {
     public UnrecognizedResponseException(Throwable cause) {
         super(cause);
     }
+    
+    /**
+     * Constructs a new exception that can skip filling in its stack trace,
+     * for failures on frequent paths where the cost of the stack trace
+     * outweighs its use
+     *  
+     * @param message Exception message
+     * 
+     * @param cause The cause due to which the exception occurred
+     *              A null value is permitted which indicates that the cause 
+     *              is nonexistant or unknown
+     *              
+     * @param writableStackTrace false to construct the exception without
+     *              a stack trace
+     *              
+     */
+    public UnrecognizedResponseException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, true, writableStackTrace);
+    }
 }
@@ -0,0 +1,71 @@
+package com.trello;
+
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Append only store of strings that are rarely repeated, such as card and
+ * branch names, encoded back to back as UTF-8 in one byte array
+ *
+ * A name then costs its UTF-8 bytes plus a 4 byte offset instead of a String
+ * and its UTF-16 char array. Strings are decoded again on every read. Not
+ * thread safe.
+ *
+ * @author Shruti Vangari
+ *
+ */
+final class Utf8Arena {
+
+    private byte[] bytes = new byte[256];
+    private int[] ends = new int[16];
+    private int length;
+    private int size;
+
+    /**
+     * @param value
+     *            string to append
+     *
+     * @return the index of the string in the arena
+     */
+    int add(String value) {
+        byte[] encoded = value.getBytes(UTF_8);
+        if (length + encoded.length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(Math.max(256, bytes.length * 2), length + encoded.length));
+        }
+        System.arraycopy(encoded, 0, bytes, length, encoded.length);
+        length += encoded.length;
+        if (size == ends.length) {
+            ends = Arrays.copyOf(ends, Math.max(16, size * 2));
+        }
+        ends[size] = length;
+        return size++;
+    }
+
+    /**
+     * @param index
+     *            value returned by {@link #add(String)}
+     *
+     * @return the string at the index
+     */
+    String get(int index) {
+        checkElementIndex(index, size, "index");
+        int start = index == 0 ? 0 : ends[index - 1];
+        return new String(bytes, start, ends[index] - start, UTF_8);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Releases the capacity reserved for future strings
+     */
+    void trimToSize() {
+        bytes = Arrays.copyOf(bytes, length);
+        ends = Arrays.copyOf(ends, size);
+    }
+
+}
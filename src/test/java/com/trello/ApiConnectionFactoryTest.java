@@ -104,6 +104,30 @@ public class ApiConnectionFactoryTest {
         ApiConnectionFactory.INSTANCE.validateInputUrl("http://somestring");
     }
     
+    /**
+     * Unit test to check if {@link ApiConnectionFactory#validateInputUrl(String)} accepts
+     * plain HTTP to the loopback interface, where a {@link ReplayServer} listens
+     * 
+     */
+    @Test
+    public void testValidateInputURLForLoopbackHttpInput() throws Exception {
+        assertEquals(new URL("http://127.0.0.1:8080/api.github.com/"),
+                ApiConnectionFactory.INSTANCE.validateInputUrl("http://127.0.0.1:8080/api.github.com/"));
+        assertEquals(new URL("http://[::1]:8080/"), ApiConnectionFactory.INSTANCE.validateInputUrl("http://[::1]:8080/"));
+        assertEquals(new URL("http://localhost/"), ApiConnectionFactory.INSTANCE.validateInputUrl("http://localhost/"));
+    }
+    
+    /**
+     * Unit test to check if the validate method throws an IllegalArgumentException when
+     * plain HTTP to an address other than the loopback one is passed to
+     * {@link ApiConnectionFactory#validateInputUrl(String)} 
+     * 
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testValidateInputURLForNonLoopbackHttpInput() throws Exception {
+        ApiConnectionFactory.INSTANCE.validateInputUrl("http://10.0.0.1/");
+    }
+    
     /**
      * Unit test to check if a {@link GitApiConnection} is created when
      * a valid URL is passed as a string to {@link ApiConnectionFactory#validateInputUrl(String)} 
@@ -16,6 +16,9 @@ import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.whenNew;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -232,4 +235,88 @@ public class ApiConnectionTest {
         apiTest.getApiData();
         verify(httpUrlConnectionMock).disconnect();
     }
-}
\ No newline at end of file
+    
+    /**
+     * Unit test to check if {@link ApiConnection#fetch()} returns a shared {@link ApiResponse}
+     * instead of throwing when the response code is 404
+     * 
+     */
+    @Test
+    public void testFetchForHttpNotFound() throws Exception {
+        setUpApiConnectionConstructor("https://github.com/yodaTheBlah");
+        setupForResponseCode(404);
+        ApiResponse response = apiTest.fetch();
+        assertEquals(HttpResponseCode.HTTP_NOT_FOUND, response.getResponseCode());
+        assertFalse(response.isOk());
+        assertSame(ApiResponse.of(HttpResponseCode.HTTP_NOT_FOUND), response);
+    }
+    
+    /**
+     * Unit test to check if {@link ApiConnection#fetch()} returns {@link HttpResponseCode#HTTP_UNKNOWN}
+     * instead of throwing when the response code is not recognized
+     * 
+     */
+    @Test
+    public void testFetchForInvalidResponseCode() throws Exception {
+        setUpApiConnectionConstructor("https://IamAnInvalidResponseCode");
+        setupForResponseCode(1000);
+        assertEquals(HttpResponseCode.HTTP_UNKNOWN, apiTest.fetch().getResponseCode());
+    }
+    
+    /**
+     * Unit test to check if {@link ApiConnection#fetch()} carries the Retry-After and
+     * rate limit headers of the response
+     * 
+     */
+    @Test
+    public void testFetchForRetryAfterHeaders() throws Exception {
+        setUpApiConnectionConstructor("https://api.github.com/rateLimited");
+        HttpURLConnection httpUrlConnectionMock = setupForResponseCode(429);
+        when(httpUrlConnectionMock.getHeaderField("Retry-After")).thenReturn("30");
+        when(httpUrlConnectionMock.getHeaderField("X-RateLimit-Remaining")).thenReturn("0");
+        when(httpUrlConnectionMock.getHeaderField("X-RateLimit-Reset")).thenReturn("1477000000");
+        when(httpUrlConnectionMock.getHeaderField("ETag")).thenReturn("not a number");
+        ApiResponse response = apiTest.fetch();
+        assertEquals(HttpResponseCode.HTTP_TOO_MANY_REQUESTS, response.getResponseCode());
+        assertEquals(30L, response.getRetryAfterSeconds());
+        assertEquals(0L, response.getRateLimitRemaining());
+        assertEquals(1477000000L, response.getRateLimitReset());
+        assertEquals("not a number", response.getEtag());
+    }
+
+    /**
+     * Unit test to check if {@link ApiConnection#fetch()} carries the per token
+     * rate limit headers of Trello
+     *
+     */
+    @Test
+    public void testFetchForTrelloRateLimitHeaders() throws Exception {
+        setUpApiConnectionConstructor("https://api.trello.com/1/boards/5a1b");
+        HttpURLConnection httpUrlConnectionMock = setupForResponseCode(429);
+        when(httpUrlConnectionMock.getHeaderField("x-rate-limit-api-token-remaining")).thenReturn("0");
+        when(httpUrlConnectionMock.getHeaderField("x-rate-limit-api-token-interval-ms")).thenReturn("10000");
+        ApiResponse response = apiTest.fetch();
+        assertEquals(0L, response.getRateLimitRemaining());
+        assertEquals(ApiResponse.UNKNOWN, response.getRateLimitReset());
+        assertEquals(10000L, response.getRateLimitIntervalMillis());
+    }
+
+    /**
+     * Unit test to check if the {@link UnrecognizedResponseException} thrown by {@link ApiConnection#fetch()}
+     * for an IOException skips the stack trace and keeps the cause
+     * 
+     */
+    @Test
+    public void testFetchForIOExceptionIsStackless() throws Exception {
+        setUpApiConnectionConstructor("https://iThrowAnException");
+        IOException cause = new IOException();
+        when(urlMock.openConnection()).thenThrow(cause);
+        try {
+            apiTest.fetch();
+            fail("UnrecognizedResponseException expected");
+        } catch (UnrecognizedResponseException e) {
+            assertEquals(0, e.getStackTrace().length);
+            assertSame(cause, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.trello;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+
+/**
+ * Unit tests for {@link AsyncAuditLog}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class AsyncAuditLogTest {
+
+    private static final URL URL_INPUT = url("https://api.github.com/");
+
+    private static URL url(String url) {
+        try {
+            return new URL(url);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Unit test to check if every event is written by the background writer
+     * when success events are not sampled
+     *
+     */
+    @Test
+    public void testEventsAreWritten() {
+        Logger logger = mock(Logger.class);
+        AsyncAuditLog auditLog = new AsyncAuditLog(logger, 16, 1);
+        for (int i = 0; i < 100; i++) {
+            auditLog.success(URL_INPUT, HttpResponseCode.HTTP_OK);
+        }
+        auditLog.failure(URL_INPUT, HttpResponseCode.HTTP_NOT_FOUND);
+        IOException error = new IOException();
+        auditLog.error(URL_INPUT, error);
+        assertTrue(auditLog.flush(5, TimeUnit.SECONDS));
+        verify(logger, times(100 - (int) auditLog.getDropped())).info(anyString(), any(), any(), any());
+        verify(logger).warn(anyString(), eq(URL_INPUT), eq(404), eq("Not Found"));
+        verify(logger).error(anyString(), eq(URL_INPUT), eq(error));
+        auditLog.close();
+    }
+
+    /**
+     * Unit test to check if a failure is written on the calling thread when the
+     * buffer is full, while a sampled success event is dropped
+     *
+     */
+    @Test
+    public void testFailureIsWrittenWhenBufferIsFull() throws Exception {
+        Logger logger = mock(Logger.class);
+        final CountDownLatch writerBlocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                writerBlocked.countDown();
+                release.await();
+                return null;
+            }
+        }).when(logger).info(anyString(), any(), any(), any());
+        AsyncAuditLog auditLog = new AsyncAuditLog(logger, 1, 1);
+        auditLog.success(URL_INPUT, HttpResponseCode.HTTP_OK);
+        assertTrue(writerBlocked.await(5, TimeUnit.SECONDS));
+        auditLog.success(URL_INPUT, HttpResponseCode.HTTP_OK);
+        auditLog.success(URL_INPUT, HttpResponseCode.HTTP_OK);
+        auditLog.failure(URL_INPUT, HttpResponseCode.HTTP_INTERNAL_ERROR);
+        verify(logger).warn(anyString(), eq(URL_INPUT), eq(500), eq("Internal Server Error"));
+        assertEquals(1, auditLog.getDropped());
+        release.countDown();
+        assertTrue(auditLog.flush(5, TimeUnit.SECONDS));
+        auditLog.close();
+    }
+
+    /**
+     * Unit test to check if the disabled audit log writes nothing
+     *
+     */
+    @Test
+    public void testDisabledAuditLog() {
+        AsyncAuditLog auditLog = AsyncAuditLog.disabled();
+        auditLog.failure(URL_INPUT, HttpResponseCode.HTTP_NOT_FOUND);
+        assertTrue(auditLog.flush(0, TimeUnit.SECONDS));
+        assertEquals(0, auditLog.getDropped());
+    }
+
+    /**
+     * Unit test to check if {@link AsyncAuditLog} throws an IllegalArgumentException
+     * when the sampling is not positive
+     *
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testForInvalidSampling() {
+        new AsyncAuditLog(mock(Logger.class), 16, 0);
+    }
+
+    /**
+     * Unit test to check if a success event is not written when the writer
+     * has nothing to write
+     *
+     */
+    @Test
+    public void testNothingWrittenWithoutEvents() {
+        Logger logger = mock(Logger.class);
+        AsyncAuditLog auditLog = new AsyncAuditLog(logger, 16, 1);
+        assertTrue(auditLog.flush(1, TimeUnit.SECONDS));
+        verify(logger, never()).info(anyString(), any(), any(), any());
+        auditLog.close();
+    }
+
+    /**
+     * Unit test to check if {@link AsyncAuditLog#close()} writes the pending
+     * events and stops the writer, after which failures are written on the
+     * calling thread
+     *
+     */
+    @Test
+    public void testClose() {
+        Logger logger = mock(Logger.class);
+        AsyncAuditLog auditLog = new AsyncAuditLog(logger, 16, 1);
+        for (int i = 0; i < 10; i++) {
+            auditLog.success(URL_INPUT, HttpResponseCode.HTTP_OK);
+        }
+        auditLog.close();
+        verify(logger, times(10)).info(anyString(), any(), any(), any());
+        assertFalse(auditLog.isWriterAlive());
+
+        auditLog.failure(URL_INPUT, HttpResponseCode.HTTP_NOT_FOUND);
+        verify(logger).warn(anyString(), eq(URL_INPUT), eq(404), eq("Not Found"));
+        auditLog.success(URL_INPUT, HttpResponseCode.HTTP_OK);
+        assertEquals(1, auditLog.getDropped());
+        auditLog.close();
+    }
+
+    /**
+     * Unit test to check if no failure is lost when the audit log is closed
+     * while other threads keep recording failures
+     *
+     */
+    @Test
+    public void testCloseWhileRecording() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            Logger logger = mock(Logger.class);
+            final AtomicInteger written = new AtomicInteger();
+            doAnswer(new Answer<Void>() {
+                @Override
+                public Void answer(InvocationOnMock invocation) {
+                    written.incrementAndGet();
+                    return null;
+                }
+            }).when(logger).warn(anyString(), any(), any(), any());
+            final AsyncAuditLog auditLog = new AsyncAuditLog(logger, 64, 1);
+            final CountDownLatch started = new CountDownLatch(4);
+            Thread[] threads = new Thread[4];
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        started.countDown();
+                        for (int j = 0; j < 1000; j++) {
+                            auditLog.failure(URL_INPUT, HttpResponseCode.HTTP_NOT_FOUND);
+                        }
+                    }
+                });
+                threads[i].start();
+            }
+            started.await();
+            auditLog.close();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(4000, written.get());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.trello;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Request throughput of {@link ApiConnection} against a local {@link ReplayServer}
+ * with the audit log disabled, sampled and writing every success
+ *
+ * Run with
+ * mvn test-compile exec:java -Dexec.mainClass=com.trello.AuditLogBenchmark -Dexec.classpathScope=test
+ * and optionally -Dthreads=8 -Drequests=20000
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class AuditLogBenchmark {
+
+    private static final String RECORDED_URL = "https://api.github.com/repos/shrutivangari/trello-branching";
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("threads", 8);
+        int requests = Integer.getInteger("requests", 20000);
+        ReplayServer replayServer = ReplayServers.serving(RECORDED_URL, "{\"name\":\"trello-branching\"}");
+        AsyncAuditLog sampled = new AsyncAuditLog(LoggerFactory.getLogger(ApiConnection.class),
+                AsyncAuditLog.DEFAULT_CAPACITY, AsyncAuditLog.DEFAULT_SUCCESS_SAMPLING);
+        AsyncAuditLog everySuccess = new AsyncAuditLog(LoggerFactory.getLogger(ApiConnection.class),
+                AsyncAuditLog.DEFAULT_CAPACITY, 1);
+        try {
+            URL url = replayServer.replayUrl(RECORDED_URL);
+            run("warmup", url, AsyncAuditLog.disabled(), threads, requests);
+            double off = run("logging off", url, AsyncAuditLog.disabled(), threads, requests);
+            double onSampled = run("logging on, sampled", url, sampled, threads, requests);
+            double onEverySuccess = run("logging on, every success", url, everySuccess, threads, requests);
+            System.out.printf("sampled logging keeps %.1f%% and full logging %.1f%% of the throughput%n",
+                    100 * onSampled / off, 100 * onEverySuccess / off);
+        } finally {
+            sampled.close();
+            everySuccess.close();
+            replayServer.close();
+        }
+    }
+
+    private static double run(String name, URL url, AsyncAuditLog auditLog, int threads, final int requests)
+            throws Exception {
+        final ApiConnection connection = new ApiConnection(url, null, auditLog);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final int perThread = requests / threads;
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < threads; i++) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int j = 0; j < perThread; j++) {
+                        connection.fetch();
+                    }
+                    return null;
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        auditLog.flush(10, TimeUnit.SECONDS);
+        double throughput = perThread * threads / (elapsed / 1e9);
+        System.out.printf("%-28s %10.0f requests/s%n", name, throughput);
+        return throughput;
+    }
+}
@@ -0,0 +1,132 @@
+package com.trello;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link BoardSnapshot} and {@link SnapshotStore}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class BoardSnapshotTest {
+
+    private static final String BOARD_ID = "5a1b2c3d4e5f607182930000";
+    private static final String OTHER_BOARD_ID = "5a1b2c3d4e5f607182931111";
+    private static final String CARD_ID = "5a1b2c3d4e5f60718293a4b5";
+    private static final String OTHER_CARD_ID = "5a1b2c3d4e5f60718293a4b6";
+
+    /**
+     * Unit test to check if a card added to a {@link BoardSnapshot} is read back unchanged
+     *
+     */
+    @Test
+    public void testAddCard() {
+        BoardSnapshot board = new SnapshotStore().createBoard(BOARD_ID);
+        int index = board.addCard(CARD_ID, 42, "Fix the login page ✓", "trello-branching", "bug", "ui");
+        assertEquals(index, board.indexOf(CARD_ID));
+        assertEquals(CARD_ID, board.getCardId(index));
+        assertEquals(42, board.getIdShort(index));
+        assertEquals("Fix the login page ✓", board.getCardName(index));
+        assertEquals("trello-branching", board.getListName(index));
+        assertEquals(Arrays.asList("bug", "ui"), board.getLabels(index));
+        assertEquals(-1, board.indexOf(OTHER_CARD_ID));
+    }
+
+    /**
+     * Unit test to check if list and label names repeated across boards are stored once
+     *
+     */
+    @Test
+    public void testRepeatedNamesAreInterned() {
+        SnapshotStore store = new SnapshotStore();
+        BoardSnapshot first = store.createBoard(BOARD_ID);
+        BoardSnapshot second = store.createBoard(OTHER_BOARD_ID);
+        first.addCard(CARD_ID, 1, "first", new String("trello-branching"), new String("bug"));
+        second.addCard(CARD_ID, 1, "second", new String("trello-branching"), new String("bug"));
+        second.addBranch(new String("trello-branching"), "1-second");
+        assertEquals(2, store.getStringPool().size());
+        assertSame(first.getListName(0), second.getListName(0));
+        assertSame(first.getListName(0), second.getBranchRepo(0));
+        assertSame(first.getLabels(0).get(0), second.getLabels(0).get(0));
+    }
+
+    /**
+     * Unit test to check if cards without labels and branches survive {@link BoardSnapshot#trimToSize()}
+     *
+     */
+    @Test
+    public void testTrimToSize() {
+        BoardSnapshot board = new SnapshotStore().createBoard(BOARD_ID);
+        for (int i = 0; i < 100; i++) {
+            board.addCard(String.format("5a1b2c3d4e5f6071%08x", i), i, "card " + i, "repo");
+            board.addBranch("repo", i + "-card-" + i);
+        }
+        board.trimToSize();
+        assertTrue(board.getLabels(99).isEmpty());
+        assertEquals("card 99", board.getCardName(99));
+        assertEquals("99-card-99", board.getBranchName(99));
+        board.addCard(CARD_ID, 100, "card 100", "repo");
+        assertEquals(101, board.getCardCount());
+    }
+
+    /**
+     * Unit test to check if {@link BoardSnapshot#addCard(String, int, String, String, String...)} throws
+     * an IllegalArgumentException when the card was already added
+     *
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddCardForDuplicateId() {
+        BoardSnapshot board = new SnapshotStore().createBoard(BOARD_ID);
+        board.addCard(CARD_ID, 1, "first", "repo");
+        board.addCard(CARD_ID, 2, "second", "repo");
+    }
+
+    /**
+     * Unit test to check if a card rejected for a null label leaves the
+     * snapshot unchanged, so the labels of later cards are read back right
+     *
+     */
+    @Test
+    public void testAddCardForNullLabel() {
+        BoardSnapshot board = new SnapshotStore().createBoard(BOARD_ID);
+        board.addCard(CARD_ID, 1, "first", "repo", "bug");
+        try {
+            board.addCard(OTHER_CARD_ID, 2, "second", "repo", "feature", null);
+            fail("expected NullPointerException");
+        } catch (NullPointerException e) {
+            assertEquals("label:null", e.getMessage());
+        }
+        assertEquals(1, board.getCardCount());
+        assertEquals(-1, board.indexOf(OTHER_CARD_ID));
+        int index = board.addCard(OTHER_CARD_ID, 3, "third", "repo", "ui");
+        assertEquals(Arrays.asList("bug"), board.getLabels(0));
+        assertEquals(Arrays.asList("ui"), board.getLabels(index));
+    }
+
+    /**
+     * Unit test to check if {@link SnapshotStore#put(BoardSnapshot)} replaces the previous
+     * snapshot of the same board
+     *
+     */
+    @Test
+    public void testStorePutReplacesBoard() {
+        SnapshotStore store = new SnapshotStore();
+        assertNull(store.get(BOARD_ID));
+        BoardSnapshot first = store.createBoard(BOARD_ID);
+        store.put(first);
+        store.put(store.createBoard(OTHER_BOARD_ID));
+        BoardSnapshot second = store.createBoard(BOARD_ID);
+        store.put(second);
+        assertSame(second, store.get(BOARD_ID));
+        assertEquals(2, store.getBoards().size());
+        assertEquals(BOARD_ID, store.getBoards().get(0).getBoardId());
+    }
+}
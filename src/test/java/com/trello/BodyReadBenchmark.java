@@ -0,0 +1,69 @@
+package com.trello;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+
+import com.google.common.io.CharStreams;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Bytes allocated per response body read through an InputStreamReader, the
+ * way {@link ApiConnection} used to, compared with the path of
+ * {@link ApiConnection#fetch(Credential, RequestHandle)}: a {@link ResponseBody}
+ * read into pooled buffers, decoded with {@link ResponseBody#asString()} and
+ * released. Both paths produce the same String, the one of the pooled path
+ * is the bulk of what it allocates.
+ *
+ * Run with
+ * mvn test-compile exec:java -Dexec.mainClass=com.trello.BodyReadBenchmark -Dexec.classpathScope=test
+ * and optionally -Dbytes=65536 -Dreads=20000
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class BodyReadBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int size = Integer.getInteger("bytes", 64 * 1024);
+        int reads = Integer.getInteger("reads", 20000);
+        StringBuilder json = new StringBuilder(size).append('[');
+        while (json.length() < size - 64) {
+            json.append("{\"id\":\"5a1b2c3d4e5f607182930000\",\"name\":\"card\"},");
+        }
+        byte[] bytes = json.append("{}]").toString().getBytes(UTF_8);
+        ByteBufferPool pool = new ByteBufferPool();
+
+        for (int round = 0; round < 2; round++) {
+            long before = allocatedBytes();
+            long checksum = 0;
+            for (int i = 0; i < reads; i++) {
+                InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(bytes), UTF_8);
+                checksum += CharStreams.toString(reader).length();
+            }
+            report("reader", before, reads, checksum);
+
+            before = allocatedBytes();
+            checksum = 0;
+            for (int i = 0; i < reads; i++) {
+                ResponseBody body = ResponseBody.read(HttpResponseCode.HTTP_OK, new ByteArrayInputStream(bytes), pool,
+                        bytes.length);
+                checksum += body.asString().length();
+                body.release();
+            }
+            report("pooled", before, reads, checksum);
+        }
+    }
+
+    private static void report(String name, long before, int reads, long checksum) {
+        System.out.printf("%-8s %9d bytes allocated per read (checksum %d)%n", name,
+                (allocatedBytes() - before) / reads, checksum);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,51 @@
+package com.trello;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link BranchNames}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class BranchNamesTest {
+
+    @Test
+    public void testForCard() {
+        assertEquals("42-fix-the-login-page", BranchNames.forCard(42, "Fix the login page!"));
+        assertEquals("7-api-v2-migration", BranchNames.forCard(7, "  API v2 -- migration  "));
+        assertEquals("3-card", BranchNames.forCard(3, "???"));
+    }
+
+    @Test
+    public void testForCardLimitsSlugLength() {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            name.append('a');
+        }
+        assertEquals(2 + BranchNames.MAX_SLUG_LENGTH, BranchNames.forCard(1, name.toString()).length());
+    }
+
+    @Test
+    public void testParseIdShort() {
+        assertEquals(42, BranchNames.parseIdShort("42-fix-the-login-page"));
+        assertEquals(3, BranchNames.parseIdShort("3-card"));
+    }
+
+    @Test
+    public void testParseIdShortForUnmanagedBranch() {
+        assertEquals(BranchNames.UNMANAGED, BranchNames.parseIdShort("master"));
+        assertEquals(BranchNames.UNMANAGED, BranchNames.parseIdShort("-42"));
+        assertEquals(BranchNames.UNMANAGED, BranchNames.parseIdShort("42a-feature"));
+        assertEquals(BranchNames.UNMANAGED, BranchNames.parseIdShort("1234567890-too-long"));
+        assertEquals(BranchNames.UNMANAGED, BranchNames.parseIdShort(""));
+    }
+
+    @Test
+    public void testParseIdShortForNumberOnlyBranch() {
+        assertEquals(BranchNames.UNMANAGED, BranchNames.parseIdShort("2024"));
+        assertEquals(BranchNames.UNMANAGED, BranchNames.parseIdShort("1"));
+    }
+}
@@ -0,0 +1,186 @@
+package com.trello;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ConcurrencyLimiter}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class ConcurrencyLimiterTest {
+
+    private static final String HOST = "api.github.com";
+    private static final String REPO_URL = "https://api.github.com/repos/shrutivangari/trello-branching";
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Keeps the limiter full and feeds it one sample of the given round trip time
+     */
+    private static void sample(ConcurrencyLimiter limiter, long rttNanos, boolean dropped) {
+        int permits = 0;
+        while (limiter.acquire(0)) {
+            permits++;
+        }
+        for (int i = 0; i < permits; i++) {
+            limiter.release(i == 0 ? rttNanos : 0, i == 0 && dropped);
+        }
+    }
+
+    /**
+     * Unit test to check if the limit grows while latency stays flat and never
+     * past the maximum
+     *
+     */
+    @Test
+    public void testLimitGrowsWhileLatencyIsFlat() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(HOST, 4, 32, 0, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10; i++) {
+            sample(limiter, 20 * MILLIS, false);
+        }
+        assertTrue(limiter.getLimit() > 4);
+        for (int i = 0; i < 200; i++) {
+            sample(limiter, 20 * MILLIS, false);
+        }
+        assertEquals(32, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    /**
+     * Unit test to check if the limit does not grow when the requests in
+     * flight never come close to it
+     *
+     */
+    @Test
+    public void testLimitDoesNotGrowWhenUnused() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(HOST, 16, 32, 0, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limiter.acquire(0));
+            limiter.release(20 * MILLIS, false);
+        }
+        assertEquals(16, limiter.getLimit());
+    }
+
+    /**
+     * Unit test to check if the limit shrinks when latency rises
+     *
+     */
+    @Test
+    public void testLimitShrinksWhenLatencyRises() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(HOST, 32, 32, 0, TimeUnit.MILLISECONDS);
+        sample(limiter, 20 * MILLIS, false);
+        assertEquals(32, limiter.getLimit());
+        for (int i = 0; i < 20; i++) {
+            sample(limiter, 100 * MILLIS, false);
+        }
+        assertTrue(limiter.getLimit() < 16);
+    }
+
+    /**
+     * Unit test to check if overloaded responses cut the limit multiplicatively
+     *
+     */
+    @Test
+    public void testLimitCutOnOverload() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(HOST, 20, 32, 0, TimeUnit.MILLISECONDS);
+        sample(limiter, 20 * MILLIS, true);
+        assertEquals(18, limiter.getLimit());
+        for (int i = 0; i < 50; i++) {
+            sample(limiter, 20 * MILLIS, true);
+        }
+        assertEquals(1, limiter.getLimit());
+    }
+
+    /**
+     * Unit test to check if a request over the limit waits for a permit and is
+     * rejected once it waited too long
+     *
+     */
+    @Test
+    public void testRequestsOverLimit() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(HOST, 1, 1, 0, TimeUnit.MILLISECONDS);
+        assertTrue(limiter.acquire(0));
+        assertFalse(limiter.acquire(TimeUnit.MILLISECONDS.toNanos(10)));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> waiting = executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return limiter.acquire(TimeUnit.SECONDS.toNanos(5));
+                }
+            });
+            limiter.release(MILLIS, false);
+            assertTrue(waiting.get(5, TimeUnit.SECONDS));
+            assertEquals(1, limiter.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try {
+            limiter.fetch(new ApiConnection(new URL(REPO_URL)));
+            fail("expected rejection");
+        } catch (RejectedExecutionException e) {
+            assertEquals(1, limiter.getInFlight());
+        }
+    }
+
+    /**
+     * Unit test to check if the limiter of a host follows the scripted latency
+     * and errors of a {@link ReplayServer}
+     *
+     */
+    @Test
+    public void testFetchAgainstReplayServer() throws Exception {
+        ReplayServer replayServer = ReplayServers.serving(REPO_URL, "{\"name\":\"trello-branching\"}");
+        try {
+            ApiConnection connection = new ApiConnection(replayServer.replayUrl(REPO_URL));
+            ConcurrencyLimiter limiter = new ConcurrencyLimiter(HOST, 32, 32, 0, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < 5; i++) {
+                assertTrue(limiter.fetch(connection).isOk());
+            }
+            int limitWhenFast = limiter.getLimit();
+
+            replayServer.setInjectedLatencyMillis(50);
+            for (int i = 0; i < 5; i++) {
+                assertTrue(limiter.fetch(connection).isOk());
+            }
+            assertTrue(limiter.getLimit() < limitWhenFast);
+
+            int limitWhenSlow = limiter.getLimit();
+            replayServer.setInjectedLatencyMillis(0);
+            replayServer.setErrorRate(1.0, HttpResponseCode.HTTP_UNAVAILABLE);
+            assertEquals(HttpResponseCode.HTTP_UNAVAILABLE, limiter.fetch(connection).getResponseCode());
+            assertTrue(limiter.getLimit() < limitWhenSlow);
+            assertEquals(0, limiter.getInFlight());
+        } finally {
+            replayServer.close();
+        }
+    }
+
+    /**
+     * Unit test to check if every connection to a host shares one limiter
+     *
+     */
+    @Test
+    public void testOneLimiterPerHost() {
+        ConcurrencyLimiter github = ApiConnectionFactory.INSTANCE.getConcurrencyLimiter(HOST);
+        assertSame(github, ApiConnectionFactory.INSTANCE.getConcurrencyLimiter(HOST));
+        assertEquals("api.trello.com", ApiConnectionFactory.INSTANCE.getConcurrencyLimiter("api.trello.com").getHost());
+    }
+
+}
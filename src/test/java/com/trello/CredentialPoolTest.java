@@ -0,0 +1,227 @@
+package com.trello;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CredentialPool} and {@link Credential}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class CredentialPoolTest {
+
+    private static final String HOST = "api.github.com";
+    private static final String REPO_URL = "https://api.github.com/repos/shrutivangari/trello-branching";
+    private static final String BODY = "{\"name\":\"trello-branching\"}";
+    private static final long NOW_SECONDS = 1500000000L;
+
+    private final MutableClock clock = new MutableClock();
+    private final Credential first = Credential.githubToken("first", "token-1");
+    private final Credential second = Credential.githubToken("second", "token-2");
+    private ReplayServer replayServer;
+
+    @After
+    public void tearDown() {
+        if (replayServer != null) {
+            replayServer.close();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private long millis = TimeUnit.SECONDS.toMillis(NOW_SECONDS);
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    private static Map<String, List<String>> rateLimit(long remaining, long reset) {
+        Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        headers.put(ApiResponse.RATE_LIMIT_REMAINING, Collections.singletonList(Long.toString(remaining)));
+        headers.put(ApiResponse.RATE_LIMIT_RESET, Collections.singletonList(Long.toString(reset)));
+        return headers;
+    }
+
+    private static Map<String, List<String>> trelloRateLimit(long remaining, long intervalMillis) {
+        Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        headers.put(ApiResponse.TRELLO_RATE_LIMIT_REMAINING, Collections.singletonList(Long.toString(remaining)));
+        headers.put(ApiResponse.TRELLO_RATE_LIMIT_INTERVAL, Collections.singletonList(Long.toString(intervalMillis)));
+        return headers;
+    }
+
+    /**
+     * Replays the responses in order, one per request to {@link #REPO_URL}
+     */
+    private ApiConnection replay(int[] codes, List<Map<String, List<String>>> headers) throws Exception {
+        ReplayServers recording = ReplayServers.recording();
+        for (int i = 0; i < codes.length; i++) {
+            recording.add(REPO_URL, codes[i], headers.get(i), codes[i] == 200 ? BODY : "",
+                    ReplayServers.DEFAULT_LATENCY_NANOS);
+        }
+        replayServer = recording.start();
+        return new ApiConnection(replayServer.replayUrl(REPO_URL));
+    }
+
+    /**
+     * Unit test to check if requests go to the credential with the most headroom
+     *
+     */
+    @Test
+    public void testMostHeadroom() throws Exception {
+        CredentialPool pool = new CredentialPool(HOST, clock);
+        pool.add(first);
+        pool.add(second);
+        ApiConnection connection = replay(new int[] { 200, 200 },
+                Arrays.asList(rateLimit(10, NOW_SECONDS + 60), rateLimit(100, NOW_SECONDS + 60)));
+
+        assertEquals(BODY, pool.fetch(connection).getBody());
+        assertEquals(BODY, pool.fetch(connection).getBody());
+
+        Credential credential = pool.acquire();
+        assertSame(second, credential);
+        pool.update(credential, null);
+    }
+
+    /**
+     * Unit test to check if a request fails over to the next credential when
+     * one is unauthorized, and that credential is not used again
+     *
+     */
+    @Test
+    public void testFailoverOnUnauthorized() throws Exception {
+        CredentialPool pool = new CredentialPool(HOST, clock);
+        pool.add(first);
+        pool.add(second);
+        Map<String, List<String>> none = Collections.emptyMap();
+        ApiConnection connection = replay(new int[] { 401, 200 }, Arrays.asList(none, none));
+
+        ApiResponse response = pool.fetch(connection);
+        assertEquals(HttpResponseCode.HTTP_OK, response.getResponseCode());
+        assertEquals(1, pool.getAvailable());
+        Credential credential = pool.acquire();
+        assertSame(second, credential);
+        pool.update(credential, null);
+    }
+
+    /**
+     * Unit test to check if a credential out of requests is suspended until its
+     * rate limit resets
+     *
+     */
+    @Test
+    public void testSuspendedUntilReset() throws Exception {
+        CredentialPool pool = new CredentialPool(HOST, clock);
+        pool.add(first);
+        ApiConnection connection = replay(new int[] { 403, 200 },
+                Arrays.asList(rateLimit(0, NOW_SECONDS + 600), rateLimit(4999, NOW_SECONDS + 4200)));
+
+        assertEquals(HttpResponseCode.HTTP_FORBIDDEN, pool.fetch(connection).getResponseCode());
+        assertEquals(0, pool.getAvailable());
+        try {
+            pool.fetch(connection);
+            fail("expected rejection");
+        } catch (RejectedExecutionException e) {
+            assertEquals(0, pool.getAvailable());
+        }
+
+        clock.millis += TimeUnit.SECONDS.toMillis(600);
+        assertEquals(1, pool.getAvailable());
+        assertEquals(BODY, pool.fetch(connection).getBody());
+    }
+
+    /**
+     * Unit test to check if the rate limit headers of Trello are counted as
+     * headroom, and forgotten once the interval they were sent for has passed
+     *
+     */
+    @Test
+    public void testTrelloHeadroom() throws Exception {
+        Credential firstTrello = Credential.trelloToken("first", "key-1", "token-1");
+        Credential secondTrello = Credential.trelloToken("second", "key-1", "token-2");
+        CredentialPool pool = new CredentialPool("api.trello.com", clock);
+        pool.add(firstTrello);
+        pool.add(secondTrello);
+        ApiConnection connection = replay(new int[] { 200, 200 },
+                Arrays.asList(trelloRateLimit(90, 10000), trelloRateLimit(5, 10000)));
+
+        assertEquals(BODY, pool.fetch(connection).getBody());
+        assertEquals(BODY, pool.fetch(connection).getBody());
+
+        Credential credential = pool.acquire();
+        assertSame(firstTrello, credential);
+        pool.update(credential, null);
+
+        clock.millis += 10000;
+        credential = pool.acquire();
+        assertSame(secondTrello, credential);
+        pool.update(credential, null);
+    }
+
+    /**
+     * Unit test to check if Github credentials are sent in the Authorization
+     * header and Trello credentials as query parameters
+     *
+     */
+    @Test
+    public void testCredentialIsApplied() throws Exception {
+        URL url = new URL("https://api.trello.com/1/boards/5a1b?fields=name");
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+
+        assertSame(url, first.authorize(url));
+        first.authorize(connection);
+        verify(connection).setRequestProperty("Authorization", "token token-1");
+
+        Credential trello = Credential.trelloToken("trello", "key-1", "token 1");
+        HttpURLConnection trelloConnection = mock(HttpURLConnection.class);
+        assertEquals("https://api.trello.com/1/boards/5a1b?fields=name&key=key-1&token=token+1",
+                trello.authorize(url).toString());
+        trello.authorize(trelloConnection);
+        verifyZeroInteractions(trelloConnection);
+        assertEquals("trello", trello.toString());
+    }
+
+    /**
+     * Unit test to check if every connection to a host shares one pool
+     *
+     */
+    @Test
+    public void testOnePoolPerHost() {
+        assertSame(ApiConnectionFactory.INSTANCE.getCredentialPool(HOST),
+                ApiConnectionFactory.INSTANCE.getCredentialPool(HOST));
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.trello;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link HedgedRequestExecutor}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class HedgedRequestExecutorTest {
+
+    private static final String REPO_URL = "https://api.github.com/repos/shrutivangari/trello-branching";
+    private static final String BODY = "{\"name\":\"trello-branching\"}";
+    private static final long SLOW_MILLIS = 2000;
+    private static final long FAST_MILLIS = 1;
+
+    private ReplayServer replayServer;
+    private ExecutorService executor;
+    private LatencyTracker tracker;
+
+    /**
+     * Replays the same URL slowly then fast, so that a request is slow and
+     * its hedge, the next request to the server, is fast
+     */
+    @Before
+    public void setUp() throws Exception {
+        replayServer = ReplayServers.recording()
+                .add(REPO_URL, 200, null, BODY, TimeUnit.MILLISECONDS.toNanos(SLOW_MILLIS))
+                .add(REPO_URL, 200, null, BODY, TimeUnit.MILLISECONDS.toNanos(FAST_MILLIS))
+                .start(1.0);
+        executor = Executors.newFixedThreadPool(4);
+        tracker = new LatencyTracker();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        replayServer.close();
+    }
+
+    private void warmUp(long latencyMillis) {
+        for (int i = 0; i < HedgedRequestExecutor.MIN_SAMPLES; i++) {
+            tracker.record(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        }
+    }
+
+    /**
+     * Unit test to check if a slow request is answered by its hedge and the
+     * slow copy is cancelled instead of waited for
+     *
+     */
+    @Test
+    public void testHedgeWinsOverSlowRequest() {
+        warmUp(20);
+        HedgedRequestExecutor hedged = new HedgedRequestExecutor(executor, tracker, 95, 1.0);
+        ApiConnection connection = new ApiConnection(replayServer.replayUrl(REPO_URL));
+
+        long startNanos = System.nanoTime();
+        ApiResponse response = hedged.fetch(connection);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        assertEquals(BODY, response.getBody());
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis < SLOW_MILLIS / 2);
+        assertEquals(1, hedged.getHedges());
+        assertEquals(1, hedged.getHedgeWins());
+        assertEquals(HedgedRequestExecutor.MIN_SAMPLES + 2, tracker.getCount());
+    }
+
+    /**
+     * Unit test to check if nothing is hedged before the tracker has enough samples
+     *
+     */
+    @Test
+    public void testNoHedgeWithoutSamples() {
+        HedgedRequestExecutor hedged = new HedgedRequestExecutor(executor, tracker, 95, 1.0);
+        assertEquals(-1, hedged.getHedgeDelayNanos());
+        ApiConnection connection = new ApiConnection(replayServer.replayUrl(REPO_URL));
+        replayServer.setSpeedMultiplier(10);
+        assertEquals(BODY, hedged.fetch(connection).getBody());
+        assertEquals(0, hedged.getHedges());
+        assertEquals(1, tracker.getCount());
+    }
+
+    /**
+     * Unit test to check if hedges stop once the budget is spent
+     *
+     */
+    @Test
+    public void testHedgeBudget() {
+        warmUp(20);
+        HedgedRequestExecutor hedged = new HedgedRequestExecutor(executor, tracker, 95, 0.0);
+        ApiConnection connection = new ApiConnection(replayServer.replayUrl(REPO_URL));
+        replayServer.setSpeedMultiplier(10);
+
+        long startNanos = System.nanoTime();
+        assertEquals(BODY, hedged.fetch(connection).getBody());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        assertEquals(0, hedged.getHedges());
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= SLOW_MILLIS / 10);
+    }
+
+    /**
+     * Unit test to check if a request cancelled through its {@link RequestHandle}
+     * ends with a {@link CancellationException}
+     *
+     */
+    @Test
+    public void testCancelledRequest() {
+        RequestHandle handle = new RequestHandle();
+        handle.cancel();
+        try {
+            new ApiConnection(replayServer.replayUrl(REPO_URL)).fetch(handle);
+            fail("expected cancellation");
+        } catch (CancellationException e) {
+            assertTrue(handle.isCancelled());
+        }
+    }
+
+    /**
+     * Unit test to check if cancelling the handle of a hedged request
+     * cancels its copies
+     *
+     */
+    @Test
+    public void testCancelledHedgedRequest() {
+        HedgedRequestExecutor hedged = new HedgedRequestExecutor(executor, tracker, 95, 1.0);
+        RequestHandle handle = new RequestHandle();
+        handle.cancel();
+        try {
+            hedged.fetch(new ApiConnection(replayServer.replayUrl(REPO_URL)), null, handle);
+            fail("expected cancellation");
+        } catch (CancellationException e) {
+            assertEquals(1, tracker.getCount());
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.trello;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LatencyTracker}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class LatencyTrackerTest {
+
+    /**
+     * Unit test to check if percentiles are read from the recorded latencies
+     *
+     */
+    @Test
+    public void testPercentiles() {
+        LatencyTracker tracker = new LatencyTracker(100);
+        assertEquals(0, tracker.percentile(95));
+        for (int i = 100; i >= 1; i--) {
+            tracker.record(i);
+        }
+        assertEquals(100, tracker.getCount());
+        assertEquals(1, tracker.percentile(0));
+        assertEquals(50, tracker.percentile(50));
+        assertEquals(95, tracker.percentile(95));
+        assertEquals(100, tracker.percentile(100));
+    }
+
+    /**
+     * Unit test to check if the oldest latencies leave the window
+     *
+     */
+    @Test
+    public void testWindow() {
+        LatencyTracker tracker = new LatencyTracker(10);
+        for (int i = 0; i < 10; i++) {
+            tracker.record(1000);
+        }
+        assertEquals(1000, tracker.percentile(50));
+        for (int i = 0; i < 10; i++) {
+            tracker.record(10);
+        }
+        assertEquals(10, tracker.getCount());
+        assertEquals(10, tracker.percentile(100));
+    }
+
+    /**
+     * Unit test to check if the percentiles are only recomputed once the
+     * refresh interval of new samples came in
+     *
+     */
+    @Test
+    public void testRefreshInterval() {
+        LatencyTracker tracker = new LatencyTracker(100, 10);
+        for (int i = 0; i < 10; i++) {
+            tracker.record(1000);
+        }
+        assertEquals(1000, tracker.percentile(100));
+        for (int i = 0; i < 9; i++) {
+            tracker.record(5000);
+        }
+        assertEquals(1000, tracker.percentile(100));
+        tracker.record(5000);
+        assertEquals(5000, tracker.percentile(100));
+        assertEquals(20, tracker.getCount());
+    }
+
+}
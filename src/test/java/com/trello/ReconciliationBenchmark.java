@@ -0,0 +1,75 @@
+package com.trello;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Time taken by {@link ReconciliationEngine} to plan 100k cards against 100k
+ * branches with a growing number of cores
+ *
+ * Run with
+ * mvn test-compile exec:java -Dexec.mainClass=com.trello.ReconciliationBenchmark -Dexec.classpathScope=test
+ * and optionally -Dcards=100000 -Dboards=100 -Diterations=20
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class ReconciliationBenchmark {
+
+    private static final String[] REPOS = { "trello-branching", "api-gateway", "web-frontend", "infra" };
+
+    public static void main(String[] args) {
+        int cards = Integer.getInteger("cards", 100000);
+        int boards = Integer.getInteger("boards", 100);
+        int iterations = Integer.getInteger("iterations", 20);
+        List<BoardSnapshot> snapshots = buildBoards(cards, boards);
+        int cores = Runtime.getRuntime().availableProcessors();
+        double single = 0;
+        for (int parallelism = 1; parallelism <= cores; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            ReconciliationEngine engine = new ReconciliationEngine(pool);
+            for (int i = 0; i < iterations; i++) {
+                engine.reconcile(snapshots);
+            }
+            long start = System.nanoTime();
+            int actions = 0;
+            for (int i = 0; i < iterations; i++) {
+                for (ReconciliationPlan plan : engine.reconcile(snapshots)) {
+                    actions += plan.getActions().size();
+                }
+            }
+            double millis = (System.nanoTime() - start) / 1e6 / iterations;
+            pool.shutdown();
+            if (parallelism == 1) {
+                single = millis;
+            }
+            System.out.printf("%2d threads %8.1f ms per run %6.2fx speedup (%d actions)%n", parallelism, millis,
+                    single / millis, actions / iterations);
+        }
+    }
+
+    private static List<BoardSnapshot> buildBoards(int cards, int boards) {
+        SnapshotStore store = new SnapshotStore();
+        Random random = new Random(42);
+        int perBoard = cards / boards;
+        for (int b = 0; b < boards; b++) {
+            BoardSnapshot board = store.createBoard(String.format("5a1b2c3d4e5f6071%08x", b));
+            for (int c = 0; c < perBoard; c++) {
+                String repo = REPOS[random.nextInt(REPOS.length)];
+                String name = "card number " + c + " of board " + b;
+                board.addCard(String.format("5a1b2c3d%08x%08x", b, c), c, name, repo);
+                int outcome = random.nextInt(10);
+                if (outcome < 7) {
+                    board.addBranch(repo, BranchNames.forCard(c, name));
+                } else if (outcome == 7) {
+                    board.addBranch(repo, c + "-renamed-card");
+                } else if (outcome == 8) {
+                    board.addBranch(repo, (c + perBoard) + "-deleted-card");
+                }
+            }
+            store.put(board);
+        }
+        return store.getBoards();
+    }
+}
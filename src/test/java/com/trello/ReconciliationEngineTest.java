@@ -0,0 +1,165 @@
+package com.trello;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.trello.ReconciliationPlan.Action;
+import com.trello.ReconciliationPlan.ActionType;
+
+/**
+ * Unit tests for {@link ReconciliationEngine}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class ReconciliationEngineTest {
+
+    private static final String BOARD_ID = "5a1b2c3d4e5f607182930000";
+    private static final String REPO = "trello-branching";
+
+    private static String cardId(int i) {
+        return String.format("5a1b2c3d4e5f6071%08x", i);
+    }
+
+    /**
+     * Unit test to check if a card without branch is planned as {@link ActionType#CREATE}
+     * and a branch without card as {@link ActionType#ORPHAN}, while unmanaged branches are ignored
+     *
+     */
+    @Test
+    public void testCreateAndOrphan() {
+        BoardSnapshot board = new SnapshotStore().createBoard(BOARD_ID);
+        board.addCard(cardId(1), 1, "Add login", REPO);
+        board.addBranch(REPO, "master");
+        board.addBranch(REPO, "2-removed-card");
+        ReconciliationPlan plan = ReconciliationEngine.reconcileBoard(board);
+        assertEquals(2, plan.getActions().size());
+        Action create = plan.getActions(ActionType.CREATE).get(0);
+        assertEquals(REPO, create.getRepoName());
+        assertEquals("1-add-login", create.getBranchName());
+        assertEquals(cardId(1), create.getCardId());
+        Action orphan = plan.getActions(ActionType.ORPHAN).get(0);
+        assertEquals("2-removed-card", orphan.getBranchName());
+        assertNull(orphan.getCardId());
+    }
+
+    /**
+     * Unit test to check if the branch of a renamed card is planned as {@link ActionType#RENAME}
+     * and a matching branch needs no action
+     *
+     */
+    @Test
+    public void testRenameAndMatch() {
+        BoardSnapshot board = new SnapshotStore().createBoard(BOARD_ID);
+        board.addCard(cardId(1), 1, "Add login", REPO);
+        board.addCard(cardId(2), 2, "Add sign up page", REPO);
+        board.addBranch(REPO, "1-add-login");
+        board.addBranch(REPO, "2-add-signup");
+        ReconciliationPlan plan = ReconciliationEngine.reconcileBoard(board);
+        assertEquals(1, plan.getActions().size());
+        Action rename = plan.getActions().get(0);
+        assertEquals(ActionType.RENAME, rename.getType());
+        assertEquals("2-add-signup", rename.getBranchName());
+        assertEquals("2-add-sign-up-page", rename.getNewBranchName());
+    }
+
+    /**
+     * Unit test to check if a second branch of the same card is orphaned and the
+     * branch named after the card is kept
+     *
+     */
+    @Test
+    public void testDuplicateBranches() {
+        BoardSnapshot board = new SnapshotStore().createBoard(BOARD_ID);
+        board.addCard(cardId(1), 1, "Add login", REPO);
+        board.addBranch(REPO, "1-old-name");
+        board.addBranch(REPO, "1-add-login");
+        ReconciliationPlan plan = ReconciliationEngine.reconcileBoard(board);
+        assertEquals(1, plan.getActions().size());
+        assertEquals(ActionType.ORPHAN, plan.getActions().get(0).getType());
+        assertEquals("1-old-name", plan.getActions().get(0).getBranchName());
+    }
+
+    /**
+     * Unit test to check if a card moved to another list gets a branch in the new repo
+     * and its branch in the old repo is orphaned
+     *
+     */
+    @Test
+    public void testCardMovedToAnotherRepo() {
+        BoardSnapshot board = new SnapshotStore().createBoard(BOARD_ID);
+        board.addCard(cardId(1), 1, "Add login", "web-frontend");
+        board.addBranch(REPO, "1-add-login");
+        ReconciliationPlan plan = ReconciliationEngine.reconcileBoard(board);
+        assertEquals("web-frontend", plan.getActions(ActionType.CREATE).get(0).getRepoName());
+        assertEquals(REPO, plan.getActions(ActionType.ORPHAN).get(0).getRepoName());
+    }
+
+    /**
+     * Unit test to check if the plans computed in parallel match the plans computed
+     * one board at a time, in the order of the boards
+     *
+     */
+    @Test
+    public void testParallelReconcile() {
+        SnapshotStore store = new SnapshotStore();
+        Random random = new Random(42);
+        for (int b = 0; b < 50; b++) {
+            BoardSnapshot board = store.createBoard(String.format("5a1b2c3d4e5f6071%08x", b));
+            for (int c = 0; c < 200; c++) {
+                board.addCard(cardId(c), c, "card " + c, REPO);
+                int branch = random.nextInt(4);
+                if (branch == 1) {
+                    board.addBranch(REPO, BranchNames.forCard(c, "card " + c));
+                } else if (branch == 2) {
+                    board.addBranch(REPO, c + "-old");
+                } else if (branch == 3) {
+                    board.addBranch(REPO, (c + 1000) + "-gone");
+                }
+            }
+            store.put(board);
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<ReconciliationPlan> plans = new ReconciliationEngine(pool).reconcile(store.getBoards());
+        pool.shutdown();
+        assertEquals(50, plans.size());
+        for (int b = 0; b < 50; b++) {
+            BoardSnapshot board = store.getBoards().get(b);
+            assertEquals(board.getBoardId(), plans.get(b).getBoardId());
+            assertEquals(ReconciliationEngine.reconcileBoard(board).getActions().toString(),
+                    plans.get(b).getActions().toString());
+        }
+    }
+
+    /**
+     * Unit test to check if {@link ReconciliationEngine#sortedOrder(long[], int)} sorts
+     * by key and keeps equal keys in their original order
+     *
+     */
+    @Test
+    public void testSortedOrderIsStable() {
+        long[] keys = { 5, 1, 5, 3, 1, 0, 5 };
+        assertArrayEquals(new int[] { 5, 1, 4, 3, 0, 2, 6 }, ReconciliationEngine.sortedOrder(keys, keys.length));
+        assertTrue(ReconciliationEngine.sortedOrder(new long[0], 0).length == 0);
+        assertEquals(Arrays.toString(new int[] { 0 }),
+                Arrays.toString(ReconciliationEngine.sortedOrder(new long[] { 7 }, 1)));
+    }
+
+    /**
+     * Unit test to check if an empty list of boards gives an empty list of plans
+     *
+     */
+    @Test
+    public void testReconcileForNoBoards() {
+        assertTrue(new ReconciliationEngine().reconcile(Arrays.<BoardSnapshot> asList()).isEmpty());
+    }
+}
@@ -0,0 +1,156 @@
+package com.trello;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Unit tests for {@link ReplayServer}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class ReplayServerTest {
+
+    private static final String REPO_URL = "https://api.github.com/repos/shrutivangari/trello-branching";
+    private static final String BOARD_URL = "https://api.trello.com/1/boards/5a1b?fields=name";
+
+    private ReplayServer replayServer;
+
+    @Before
+    public void setUp() throws Exception {
+        replayServer = ReplayServers.recording()
+                .add(REPO_URL, 200, Collections.singletonMap("ETag", Collections.singletonList("\"abc\"")),
+                        "{\"name\":\"trello-branching\"}", ReplayServers.DEFAULT_LATENCY_NANOS)
+                .add(BOARD_URL, 200, null, "{\"name\":\"first\"}", ReplayServers.DEFAULT_LATENCY_NANOS)
+                .add(BOARD_URL, 200, null, "{\"name\":\"second\"}", ReplayServers.DEFAULT_LATENCY_NANOS)
+                .start();
+    }
+
+    @After
+    public void tearDown() {
+        replayServer.close();
+    }
+
+    /**
+     * Unit test to check if a recorded response is served back to an {@link ApiConnection}
+     *
+     */
+    @Test
+    public void testReplayRecordedResponse() {
+        ApiConnection connection = new ApiConnection(replayServer.replayUrl(REPO_URL));
+        assertEquals("{\"name\":\"trello-branching\"}", connection.getApiData());
+    }
+
+    /**
+     * Unit test to check if a connection created by {@link ApiConnectionFactory}
+     * can be pointed at the replay server
+     *
+     */
+    @Test
+    public void testReplayThroughFactory() {
+        ApiConnection connection = ApiConnectionFactory.INSTANCE
+                .createApiConnection(replayServer.replayUrl(REPO_URL).toString());
+        assertEquals("{\"name\":\"trello-branching\"}", connection.getApiData());
+    }
+
+    /**
+     * Unit test to check if responses recorded for the same URL are served in recorded order
+     *
+     */
+    @Test
+    public void testReplayInRecordedOrder() {
+        ApiConnection connection = new ApiConnection(replayServer.replayUrl(BOARD_URL));
+        assertEquals("{\"name\":\"first\"}", connection.getApiData());
+        assertEquals("{\"name\":\"second\"}", connection.getApiData());
+        assertEquals("{\"name\":\"first\"}", connection.getApiData());
+    }
+
+    /**
+     * Unit test to check if a request carrying the key and token of a Trello
+     * {@link Credential} is matched to the response recorded without them
+     *
+     */
+    @Test
+    public void testReplayWithTrelloCredential() {
+        ApiConnection connection = new ApiConnection(replayServer.replayUrl(BOARD_URL));
+        ApiResponse response = connection.fetch(Credential.trelloToken("trello", "key-1", "token-1"), null);
+        assertEquals(HttpResponseCode.HTTP_OK, response.getResponseCode());
+        assertEquals("{\"name\":\"first\"}", response.getBody());
+    }
+
+    /**
+     * Unit test to check if a URL that was never recorded is answered with
+     * {@link HttpResponseCode#HTTP_NOT_FOUND}
+     *
+     */
+    @Test
+    public void testReplayForUnrecordedUrl() {
+        ApiConnection connection = new ApiConnection(replayServer.replayUrl("https://api.github.com/nothing"));
+        assertEquals("{}", connection.getApiData());
+    }
+
+    /**
+     * Unit test to check if injected errors replace the recorded response
+     *
+     */
+    @Test
+    public void testReplayWithInjectedErrors() {
+        replayServer.setErrorRate(1.0, HttpResponseCode.HTTP_UNAVAILABLE);
+        ApiConnection connection = new ApiConnection(replayServer.replayUrl(REPO_URL));
+        assertEquals("{}", connection.getApiData());
+    }
+
+    /**
+     * Unit test to check if a connection in capture mode records what it read from the
+     * replayed API
+     *
+     */
+    @Test
+    public void testCaptureModeRecordsExchange() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrafficRecorder recorder = new TrafficRecorder(out);
+        new ApiConnection(replayServer.replayUrl(REPO_URL), recorder).getApiData();
+        recorder.close();
+        List<RecordedExchange> exchanges = TrafficLog.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(1, exchanges.size());
+        assertEquals(200, exchanges.get(0).getResponseCode());
+        assertEquals("\"abc\"", exchanges.get(0).getHeaders().get("ETag"));
+        assertEquals("{\"name\":\"trello-branching\"}", new String(exchanges.get(0).getBody(), UTF_8));
+    }
+
+    /**
+     * Unit test to check if capture mode records the status the API answered
+     * with even when {@link HttpResponseCode} does not know it, and the body
+     * of the error
+     *
+     */
+    @Test
+    public void testCaptureModeRecordsUnknownStatus() throws Exception {
+        ReplayServer unprocessable = ReplayServers.recording()
+                .add(REPO_URL, 422, null, "{\"message\":\"Validation Failed\"}", ReplayServers.DEFAULT_LATENCY_NANOS)
+                .start();
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            TrafficRecorder recorder = new TrafficRecorder(out);
+            ApiResponse response = new ApiConnection(unprocessable.replayUrl(REPO_URL), recorder).fetch();
+            recorder.close();
+            assertEquals(HttpResponseCode.HTTP_UNKNOWN, response.getResponseCode());
+            List<RecordedExchange> exchanges = TrafficLog.read(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(422, exchanges.get(0).getResponseCode());
+            assertEquals("{\"message\":\"Validation Failed\"}", new String(exchanges.get(0).getBody(), UTF_8));
+            assertEquals("", response.getBody());
+        } finally {
+            unprocessable.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.trello;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Starts {@link ReplayServer}s for tests from exchanges recorded in memory
+ *
+ * A server serving a single response is started with
+ * {@link #serving(String, String)}, several responses are added in the order
+ * they are replayed with {@link #add(String, int, Map, String, long)} before
+ * {@link #start()}. Loading the class turns off Nagle's algorithm for the
+ * test JVM, see {@link ReplayServer#disableNagle()}.
+ *
+ * @author Shruti Vangari
+ *
+ */
+final class ReplayServers {
+
+    static final long DEFAULT_LATENCY_NANOS = 1000L;
+
+    static {
+        ReplayServer.disableNagle();
+    }
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final TrafficRecorder recorder;
+
+    private ReplayServers() throws IOException {
+        recorder = new TrafficRecorder(out);
+    }
+
+    /**
+     * @return an empty recording to add exchanges to
+     */
+    static ReplayServers recording() throws IOException {
+        return new ReplayServers();
+    }
+
+    /**
+     * @param url
+     *            recorded URL, eg: https://api.github.com/repos/a/b
+     * @param body
+     *            body of the {@link HttpResponseCode#HTTP_OK} response
+     *
+     * @return a started server answering GET requests to the URL without delay
+     */
+    static ReplayServer serving(String url, String body) throws IOException {
+        return recording().add(url, 200, null, body, DEFAULT_LATENCY_NANOS).start();
+    }
+
+    /**
+     * @param url
+     *            recorded URL
+     * @param code
+     *            response code
+     * @param headers
+     *            response headers, null for none
+     * @param body
+     *            response body, empty for none
+     * @param latencyNanos
+     *            recorded latency of the response
+     *
+     * @return this recording
+     */
+    ReplayServers add(String url, int code, Map<String, List<String>> headers, String body, long latencyNanos)
+            throws IOException {
+        recorder.record("GET", url, code, headers, body.getBytes(UTF_8), System.nanoTime(), latencyNanos);
+        return this;
+    }
+
+    /**
+     * @return a started server replaying the exchanges without delay
+     */
+    ReplayServer start() throws IOException {
+        return start(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @param speedMultiplier
+     *            see {@link ReplayServer#setSpeedMultiplier(double)}
+     *
+     * @return a started server replaying the exchanges
+     */
+    ReplayServer start(double speedMultiplier) throws IOException {
+        recorder.close();
+        ReplayServer replayServer = new ReplayServer(TrafficLog.read(new ByteArrayInputStream(out.toByteArray())));
+        replayServer.setSpeedMultiplier(speedMultiplier);
+        replayServer.start();
+        return replayServer;
+    }
+
+}
@@ -0,0 +1,233 @@
+package com.trello;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.trello.RequestScheduler.Priority;
+
+/**
+ * Unit tests for {@link RequestScheduler}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class RequestSchedulerTest {
+
+    private RequestScheduler scheduler;
+    private final List<String> order = new CopyOnWriteArrayList<String>();
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    private Callable<String> record(final String name) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                order.add(name);
+                return name;
+            }
+        };
+    }
+
+    private Callable<String> block(final String name, final CountDownLatch started, final CountDownLatch release) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                started.countDown();
+                release.await();
+                order.add(name);
+                return name;
+            }
+        };
+    }
+
+    /**
+     * Unit test to check if queued interactive requests run before queued
+     * background requests, whatever the submission order
+     *
+     */
+    @Test
+    public void testInteractiveBeforeBackground() throws Exception {
+        scheduler = new RequestScheduler(1, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(Priority.BACKGROUND, "board", block("sweep", started, release));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        scheduler.submit(Priority.BACKGROUND, "board", record("background-1"));
+        scheduler.submit(Priority.BACKGROUND, "board", record("background-2"));
+        Future<String> last = scheduler.submit(Priority.INTERACTIVE, "board", record("interactive"));
+        assertEquals(2, scheduler.getQueued(Priority.BACKGROUND));
+        assertEquals(1, scheduler.getQueued(Priority.INTERACTIVE));
+        release.countDown();
+
+        Future<String> done = scheduler.submit(Priority.BACKGROUND, "board", record("background-3"));
+        done.get(5, TimeUnit.SECONDS);
+        assertEquals("interactive", last.get());
+        assertEquals(Arrays.asList("sweep", "interactive", "background-1", "background-2", "background-3"), order);
+    }
+
+    /**
+     * Unit test to check if background requests never use the connections
+     * reserved for interactive requests
+     *
+     */
+    @Test
+    public void testReservedCapacity() throws Exception {
+        scheduler = new RequestScheduler(2, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(Priority.BACKGROUND, "board", block("sweep", started, release));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> throttled = scheduler.submit(Priority.BACKGROUND, "board", record("background"));
+
+        Future<String> interactive = scheduler.submit(Priority.INTERACTIVE, "board", record("interactive"));
+        assertEquals("interactive", interactive.get(5, TimeUnit.SECONDS));
+        assertFalse(throttled.isDone());
+        assertEquals(1, scheduler.getQueued(Priority.BACKGROUND));
+
+        release.countDown();
+        assertEquals("background", throttled.get(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("interactive", "sweep", "background"), order);
+    }
+
+    /**
+     * Unit test to check if the tenants of a priority share the connections
+     * according to their weights
+     *
+     */
+    @Test
+    public void testWeightedFairQueuing() throws Exception {
+        scheduler = new RequestScheduler(1, 0);
+        scheduler.setWeight("large", 2);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.submit(Priority.BACKGROUND, "other", block("sweep", started, release));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        for (int i = 1; i <= 4; i++) {
+            scheduler.submit(Priority.BACKGROUND, "large", record("large-" + i));
+        }
+        Future<String> last = null;
+        for (int i = 1; i <= 2; i++) {
+            last = scheduler.submit(Priority.BACKGROUND, "small", record("small-" + i));
+        }
+        release.countDown();
+
+        last.get(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("sweep", "large-1", "large-2", "small-1", "large-3", "large-4", "small-2"), order);
+    }
+
+    /**
+     * Unit test to check if a failing request fails its own future only and
+     * releases its connection
+     *
+     */
+    @Test
+    public void testFailedRequest() throws Exception {
+        scheduler = new RequestScheduler(1, 0);
+        Future<String> failed = scheduler.submit(Priority.BACKGROUND, "board", new Callable<String>() {
+            @Override
+            public String call() {
+                throw new UnrecognizedResponseException("Response Code was not found");
+            }
+        });
+        Future<String> next = scheduler.submit(Priority.BACKGROUND, "board", record("next"));
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            fail("expected failure");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof UnrecognizedResponseException);
+        }
+        assertEquals("next", next.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Unit test to check if a credential pool, a hedged executor and a
+     * concurrency limiter wrapping one connection can be stacked behind the
+     * scheduler
+     *
+     */
+    @Test
+    public void testStackedFetchers() throws Exception {
+        String repoUrl = "https://api.trello.com/1/boards/5a1b";
+        String body = "{\"name\":\"trello-branching\"}";
+        ReplayServer replayServer = ReplayServers.serving(repoUrl, body);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CredentialPool pool = new CredentialPool("api.trello.com");
+            Credential credential = Credential.trelloToken("trello", "key-1", "token-1");
+            pool.add(credential);
+            HedgedRequestExecutor hedged = new HedgedRequestExecutor(executor);
+            ConcurrencyLimiter limiter = new ConcurrencyLimiter("api.trello.com");
+            ApiFetcher fetcher = pool.wrap(hedged.wrap(limiter.wrap(new ApiConnection(replayServer.replayUrl(repoUrl)))));
+
+            scheduler = new RequestScheduler(1, 0);
+            ApiResponse response = scheduler.submit(Priority.INTERACTIVE, "board", fetcher).get(5, TimeUnit.SECONDS);
+            assertEquals(body, response.getBody());
+            assertEquals(0, limiter.getInFlight());
+            assertEquals(0, hedged.getHedges());
+            assertSame(credential, pool.acquire());
+            pool.update(credential, null);
+        } finally {
+            executor.shutdownNow();
+            replayServer.close();
+        }
+    }
+
+    /**
+     * Unit test to check if closing cancels the queued requests and rejects new ones
+     *
+     */
+    @Test
+    public void testClose() throws Exception {
+        scheduler = new RequestScheduler(1, 0);
+        final CountDownLatch started = new CountDownLatch(1);
+        scheduler.submit(Priority.BACKGROUND, "board", new Callable<String>() {
+            @Override
+            public String call() {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<String> queued = scheduler.submit(Priority.BACKGROUND, "board", record("queued"));
+
+        scheduler.close();
+        assertTrue(queued.isCancelled());
+        try {
+            scheduler.submit(Priority.INTERACTIVE, "board", record("late"));
+            fail("expected rejection");
+        } catch (RejectedExecutionException e) {
+            assertTrue(order.isEmpty());
+        }
+    }
+
+}
@@ -0,0 +1,256 @@
+package com.trello;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Unit tests for {@link ResponseBody} and {@link ByteBufferPool}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class ResponseBodyTest {
+
+    private static final String REPO_URL = "https://api.github.com/repos/shrutivangari/trello-branching";
+
+    private final ByteBufferPool pool = new ByteBufferPool();
+
+    /**
+     * Body of the given length made of 3 byte characters, so that characters
+     * straddle the buffers
+     */
+    private static String json(int length) {
+        char[] chars = new char[length / 3];
+        Arrays.fill(chars, '€');
+        return new String(chars);
+    }
+
+    /**
+     * Unit test to check if a small body is read into a single buffer of the
+     * smallest size class
+     *
+     */
+    @Test
+    public void testReadSmallBody() throws Exception {
+        byte[] bytes = "{\"name\":\"trello-branching\"}".getBytes(UTF_8);
+        ResponseBody body = ResponseBody.read(HttpResponseCode.HTTP_OK, new ByteArrayInputStream(bytes), pool, -1);
+        assertEquals(bytes.length, body.length());
+        assertEquals(1, body.getBuffers().size());
+        assertEquals(ByteBufferPool.SIZE_CLASSES[0], body.getBuffers().get(0).capacity());
+        assertEquals("{\"name\":\"trello-branching\"}", body.asString());
+        assertEquals(HttpResponseCode.HTTP_OK, body.getResponseCode());
+        body.release();
+    }
+
+    /**
+     * Unit test to check if a body larger than a buffer is chained over
+     * buffers of growing size classes and decoded whole
+     *
+     */
+    @Test
+    public void testReadLargeBody() throws Exception {
+        String json = json(30000);
+        byte[] bytes = json.getBytes(UTF_8);
+        ResponseBody body = ResponseBody.read(HttpResponseCode.HTTP_OK, new ByteArrayInputStream(bytes), pool, -1);
+        List<ByteBuffer> buffers = body.getBuffers();
+        assertEquals(3, buffers.size());
+        assertEquals(ByteBufferPool.SIZE_CLASSES[0], buffers.get(0).capacity());
+        assertEquals(ByteBufferPool.SIZE_CLASSES[1], buffers.get(1).capacity());
+        assertEquals(ByteBufferPool.SIZE_CLASSES[2], buffers.get(2).capacity());
+        assertEquals(json, body.asString());
+        assertArrayEquals(bytes, body.toByteArray());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(bytes.length, body.writeTo(Channels.newChannel(out)));
+        assertArrayEquals(bytes, out.toByteArray());
+        body.release();
+    }
+
+    /**
+     * Unit test to check if a known length picks a buffer holding the whole body
+     *
+     */
+    @Test
+    public void testReadWithLengthHint() throws Exception {
+        byte[] bytes = json(30000).getBytes(UTF_8);
+        ResponseBody body = ResponseBody.read(HttpResponseCode.HTTP_OK, new ByteArrayInputStream(bytes), pool,
+                bytes.length);
+        assertEquals(1, body.getBuffers().size());
+        body.release();
+    }
+
+    /**
+     * Unit test to check if a body of the expected length filling its buffer
+     * exactly takes no second buffer, and one longer than expected still reads whole
+     *
+     */
+    @Test
+    public void testReadBodyFillingBuffer() throws Exception {
+        byte[] bytes = new byte[ByteBufferPool.SIZE_CLASSES[1]];
+        Arrays.fill(bytes, (byte) 'a');
+        ResponseBody.read(HttpResponseCode.HTTP_OK, new ByteArrayInputStream(bytes), pool, bytes.length).release();
+        long allocated = pool.getAllocated();
+        ResponseBody body = ResponseBody.read(HttpResponseCode.HTTP_OK, new ByteArrayInputStream(bytes), pool,
+                bytes.length);
+        assertEquals(1, body.getBuffers().size());
+        assertEquals(bytes.length, body.length());
+        assertEquals(allocated, pool.getAllocated());
+        body.release();
+
+        byte[] longer = Arrays.copyOf(bytes, bytes.length + 10);
+        longer[bytes.length] = 'b';
+        body = ResponseBody.read(HttpResponseCode.HTTP_OK, new ByteArrayInputStream(longer), pool, bytes.length);
+        assertEquals(2, body.getBuffers().size());
+        assertArrayEquals(longer, body.toByteArray());
+        body.release();
+    }
+
+    /**
+     * Unit test to check if released buffers are reused instead of allocated again
+     *
+     */
+    @Test
+    public void testBuffersAreReused() throws Exception {
+        byte[] bytes = json(30000).getBytes(UTF_8);
+        ResponseBody.read(HttpResponseCode.HTTP_OK, new ByteArrayInputStream(bytes), pool, -1).release();
+        long allocated = pool.getAllocated();
+        for (int i = 0; i < 100; i++) {
+            ResponseBody body = ResponseBody.read(HttpResponseCode.HTTP_OK, new ByteArrayInputStream(bytes), pool, -1);
+            body.release();
+            body.release();
+        }
+        assertEquals(allocated, pool.getAllocated());
+    }
+
+    /**
+     * Unit test to check if a stream returning zero bytes fails instead of
+     * being read forever, and the buffers go back to the pool
+     *
+     */
+    @Test
+    public void testZeroByteRead() throws Exception {
+        InputStream stream = new InputStream() {
+            @Override
+            public int read() {
+                return 0;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return 0;
+            }
+        };
+        try {
+            ResponseBody.read(HttpResponseCode.HTTP_OK, stream, pool, -1);
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertEquals("Underlying input stream returned zero bytes", e.getMessage());
+        }
+        long allocated = pool.getAllocated();
+        pool.acquire(0);
+        assertEquals(allocated, pool.getAllocated());
+    }
+
+    /**
+     * Unit test to check if a released body cannot be read
+     *
+     */
+    @Test
+    public void testReleasedBody() throws Exception {
+        ResponseBody body = ResponseBody.read(HttpResponseCode.HTTP_OK,
+                new ByteArrayInputStream("{}".getBytes(UTF_8)), pool, -1);
+        body.close();
+        try {
+            body.asString();
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals("body:released", e.getMessage());
+        }
+    }
+
+    /**
+     * Unit test to check if the buffers of a body go back to the pool when
+     * capturing the exchange fails before the body is handed over
+     *
+     */
+    @Test
+    public void testBodyReleasedWhenRecordingFails() throws Exception {
+        String json = json(20000);
+        ReplayServer replayServer = ReplayServers.serving(REPO_URL, json);
+        TrafficRecorder recorder = new TrafficRecorder(new OutputStream() {
+            @Override
+            public void write(int b) {
+                throw new IllegalStateException("disk full");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                throw new IllegalStateException("disk full");
+            }
+        });
+        try {
+            ApiConnection connection = new ApiConnection(replayServer.replayUrl(REPO_URL), recorder,
+                    AsyncAuditLog.disabled(), pool);
+            try {
+                connection.fetchBody(null, null);
+                fail("expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                assertEquals("disk full", e.getMessage());
+            }
+            byte[] bytes = json.getBytes(UTF_8);
+            long allocated = pool.getAllocated();
+            ResponseBody.read(HttpResponseCode.HTTP_OK, new ByteArrayInputStream(bytes), pool, bytes.length)
+                    .release();
+            assertEquals(allocated, pool.getAllocated());
+        } finally {
+            replayServer.close();
+        }
+    }
+
+    /**
+     * Unit test to check if {@link ApiConnection#fetchBody(Credential, RequestHandle)}
+     * hands over the body read from the API
+     *
+     */
+    @Test
+    public void testFetchBody() throws Exception {
+        String json = json(20000);
+        ReplayServer replayServer = ReplayServers.serving(REPO_URL, json);
+        try {
+            ApiConnection connection = new ApiConnection(replayServer.replayUrl(REPO_URL));
+            ResponseBody body = connection.fetchBody(null, null);
+            try {
+                assertEquals(HttpResponseCode.HTTP_OK, body.getResponseCode());
+                assertEquals(json, body.asString());
+            } finally {
+                body.release();
+            }
+            assertEquals(json, connection.getApiData());
+
+            ResponseBody missing = new ApiConnection(replayServer.replayUrl("https://api.github.com/nothing"))
+                    .fetchBody(null, null);
+            assertEquals(HttpResponseCode.HTTP_NOT_FOUND, missing.getResponseCode());
+            assertTrue(missing.getBuffers().isEmpty());
+            missing.release();
+        } finally {
+            replayServer.close();
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.trello;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resident memory per card of a {@link SnapshotStore} compared with the
+ * HashMap graphs a JSON parser produces for the same cards
+ *
+ * Run with
+ * mvn test-compile exec:java -Dexec.mainClass=com.trello.SnapshotMemoryBenchmark -Dexec.classpathScope=test
+ * and optionally -Dcards=1000000 -Dboards=1000
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class SnapshotMemoryBenchmark {
+
+    private static final String[] LISTS = { "trello-branching", "api-gateway", "web-frontend", "infra" };
+    private static final String[] LABELS = { "bug", "feature", "ui", "backend", "urgent" };
+
+    public static void main(String[] args) {
+        int cards = Integer.getInteger("cards", 1000000);
+        int boards = Integer.getInteger("boards", 1000);
+
+        long before = usedMemory();
+        List<Object> graphs = buildHashMapGraphs(cards, boards);
+        long graphBytes = usedMemory() - before;
+        System.out.printf("%-12s %6d bytes per card (%d boards)%n", "HashMap", graphBytes / cards, graphs.size());
+        graphs = null;
+
+        before = usedMemory();
+        SnapshotStore store = buildSnapshotStore(cards, boards);
+        long snapshotBytes = usedMemory() - before;
+        System.out.printf("%-12s %6d bytes per card (%d boards)%n", "Snapshot", snapshotBytes / cards,
+                store.getBoards().size());
+        System.out.printf("the snapshot store uses %.1fx less memory%n", (double) graphBytes / snapshotBytes);
+    }
+
+    private static List<Object> buildHashMapGraphs(int cards, int boards) {
+        List<Object> graphs = new ArrayList<Object>();
+        int perBoard = cards / boards;
+        for (int b = 0; b < boards; b++) {
+            Map<String, Object> board = new HashMap<String, Object>();
+            board.put(new String("id"), boardId(b));
+            List<Object> boardCards = new ArrayList<Object>();
+            for (int c = 0; c < perBoard; c++) {
+                Map<String, Object> card = new HashMap<String, Object>();
+                card.put(new String("id"), cardId(b, c));
+                card.put(new String("idShort"), Integer.valueOf(c));
+                card.put(new String("name"), cardName(c));
+                card.put(new String("list"), new String(LISTS[c % LISTS.length]));
+                List<Object> labels = new ArrayList<Object>();
+                labels.add(new String(LABELS[c % LABELS.length]));
+                card.put(new String("labels"), labels);
+                card.put(new String("branch"), c + "-" + cardName(c));
+                boardCards.add(card);
+            }
+            board.put(new String("cards"), boardCards);
+            graphs.add(board);
+        }
+        return graphs;
+    }
+
+    private static SnapshotStore buildSnapshotStore(int cards, int boards) {
+        SnapshotStore store = new SnapshotStore();
+        int perBoard = cards / boards;
+        for (int b = 0; b < boards; b++) {
+            BoardSnapshot board = store.createBoard(boardId(b));
+            for (int c = 0; c < perBoard; c++) {
+                String list = new String(LISTS[c % LISTS.length]);
+                board.addCard(cardId(b, c), c, cardName(c), list, new String(LABELS[c % LABELS.length]));
+                board.addBranch(list, c + "-" + cardName(c));
+            }
+            store.put(board);
+        }
+        return store;
+    }
+
+    private static String boardId(int board) {
+        return String.format("5a1b2c3d4e5f6071%08x", board);
+    }
+
+    private static String cardId(int board, int card) {
+        return String.format("5a1b2c3d%08x%08x", board, card);
+    }
+
+    private static String cardName(int card) {
+        return "card-number-" + card;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,117 @@
+package com.trello;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link StringPool}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class StringPoolTest {
+
+    /**
+     * Unit test to check if equal strings get the same id and the canonical instance
+     * is returned by {@link StringPool#get(int)}
+     *
+     */
+    @Test
+    public void testInternEqualStrings() {
+        StringPool pool = new StringPool();
+        String first = new String("Doing");
+        String second = new String("Doing");
+        assertNotSame(first, second);
+        int id = pool.intern(first);
+        assertEquals(id, pool.intern(second));
+        assertSame(first, pool.get(id));
+        assertEquals(1, pool.size());
+    }
+
+    /**
+     * Unit test to check if ids stay dense and valid when the pool grows
+     *
+     */
+    @Test
+    public void testInternManyStrings() {
+        StringPool pool = new StringPool();
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, pool.intern("label-" + i));
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, pool.find("label-" + i));
+            assertEquals("label-" + i, pool.get(i));
+        }
+        assertEquals(10000, pool.size());
+    }
+
+    /**
+     * Unit test to check if {@link StringPool#get(int)} sees every id handed out
+     * while another thread keeps interning and growing the pool
+     *
+     */
+    @Test
+    public void testGetWhileInterning() throws Exception {
+        final StringPool pool = new StringPool();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (pool.size() < 20000) {
+                        int size = pool.size();
+                        for (int id = Math.max(0, size - 64); id < size; id++) {
+                            assertEquals("label-" + id, pool.get(id));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 20000; i++) {
+            pool.intern("label-" + i);
+        }
+        reader.join();
+        assertNull(failure.get());
+    }
+
+    /**
+     * Unit test to check if {@link StringPool#find(String)} returns -1 for a
+     * string that was never interned
+     *
+     */
+    @Test
+    public void testFindForMissingString() {
+        StringPool pool = new StringPool();
+        pool.intern("To Do");
+        assertEquals(-1, pool.find("Done"));
+    }
+
+    /**
+     * Unit test to check if {@link StringPool#get(int)} throws an IndexOutOfBoundsException
+     * for an id that was not handed out
+     *
+     */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetForUnknownId() {
+        new StringPool().get(0);
+    }
+
+    /**
+     * Unit test to check if {@link StringPool#intern(String)} throws a NullPointerException
+     * for a null string
+     *
+     */
+    @Test(expected = NullPointerException.class)
+    public void testInternForNull() {
+        new StringPool().intern(null);
+    }
+}
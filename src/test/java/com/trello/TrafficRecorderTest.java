@@ -0,0 +1,87 @@
+package com.trello;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Unit tests for {@link TrafficRecorder} and {@link TrafficLog}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class TrafficRecorderTest {
+
+    private static byte[] recordTwoExchanges() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrafficRecorder recorder = new TrafficRecorder(out);
+        Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        headers.put(null, Collections.singletonList("HTTP/1.1 200 OK"));
+        headers.put("Link", Arrays.asList("<https://api.github.com/page/2>", "<https://api.github.com/page/3>"));
+        recorder.record("GET", "https://api.github.com/repos/a/b", 200, headers,
+                "{\"name\":\"b\"}".getBytes(UTF_8), System.nanoTime(), 1500000L);
+        recorder.record("GET", "https://api.trello.com/1/boards/x", 404, null, new byte[0], System.nanoTime(), 250L);
+        recorder.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Unit test to check if an exchange written by {@link TrafficRecorder} is read back
+     * unchanged by {@link TrafficLog#read(java.io.InputStream)}
+     *
+     */
+    @Test
+    public void testRecordAndRead() throws Exception {
+        List<RecordedExchange> exchanges = TrafficLog.read(new ByteArrayInputStream(recordTwoExchanges()));
+        assertEquals(2, exchanges.size());
+        RecordedExchange first = exchanges.get(0);
+        assertEquals("GET", first.getMethod());
+        assertEquals("https://api.github.com/repos/a/b", first.getUrl());
+        assertEquals(200, first.getResponseCode());
+        assertArrayEquals("{\"name\":\"b\"}".getBytes(UTF_8), first.getBody());
+        assertEquals(1500000L, first.getDurationNanos());
+        assertEquals(1, first.getHeaders().size());
+        assertEquals("<https://api.github.com/page/2>, <https://api.github.com/page/3>", first.getHeaders().get("Link"));
+        RecordedExchange second = exchanges.get(1);
+        assertEquals(404, second.getResponseCode());
+        assertEquals(0, second.getBody().length);
+        assertTrue(second.getStartOffsetNanos() >= first.getStartOffsetNanos());
+    }
+
+    /**
+     * Unit test to check if {@link TrafficLog#read(java.io.InputStream)} throws an IOException
+     * when the stream is not a traffic log
+     *
+     */
+    @Test(expected = IOException.class)
+    public void testReadForInvalidLog() throws Exception {
+        TrafficLog.read(new ByteArrayInputStream("{}".getBytes(UTF_8)));
+    }
+
+    /**
+     * Unit test to check if exchanges recorded after {@link TrafficRecorder#close()}
+     * are ignored
+     *
+     */
+    @Test
+    public void testRecordAfterClose() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TrafficRecorder recorder = new TrafficRecorder(out);
+        recorder.close();
+        recorder.record("GET", "https://api.github.com/", 200, null, new byte[0], System.nanoTime(), 0L);
+        assertEquals(0, TrafficLog.read(new ByteArrayInputStream(out.toByteArray())).size());
+    }
+}
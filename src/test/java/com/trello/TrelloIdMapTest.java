@@ -0,0 +1,106 @@
+package com.trello;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link TrelloId} and {@link TrelloIdMap}
+ *
+ * @author Shruti Vangari
+ *
+ */
+public class TrelloIdMapTest {
+
+    private static final String CARD_ID = "5a1b2c3d4e5f60718293a4b5";
+
+    private static String cardId(int i) {
+        return String.format("5a1b2c3d%08x%08x", i * 31, i);
+    }
+
+    /**
+     * Unit test to check if an id packed with {@link TrelloId} is unpacked unchanged
+     *
+     */
+    @Test
+    public void testPackAndUnpack() {
+        assertEquals(CARD_ID, TrelloId.toString(TrelloId.high(CARD_ID), TrelloId.low(CARD_ID)));
+        assertEquals("ffffffffffffffffffffffff", TrelloId.toString(-1L, -1));
+    }
+
+    /**
+     * Unit test to check if upper case ids are packed like lower case ids
+     *
+     */
+    @Test
+    public void testPackUpperCase() {
+        assertEquals(TrelloId.high(CARD_ID), TrelloId.high(CARD_ID.toUpperCase()));
+        assertEquals(TrelloId.low(CARD_ID), TrelloId.low(CARD_ID.toUpperCase()));
+    }
+
+    /**
+     * Unit test to check if {@link TrelloId#high(String)} throws an IllegalArgumentException
+     * for an id that is not 24 characters
+     *
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPackForShortId() {
+        TrelloId.high("5a1b2c3d");
+    }
+
+    /**
+     * Unit test to check if {@link TrelloId#low(String)} throws an IllegalArgumentException
+     * for an id that is not hexadecimal
+     *
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPackForNonHexId() {
+        TrelloId.low("5a1b2c3d4e5f60718293a4bz");
+    }
+
+    /**
+     * Unit test to check if an id of non-ASCII digits, eg: fullwidth zeros, is
+     * rejected rather than packed like an id of zeros
+     *
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPackForFullwidthDigits() {
+        char[] fullwidth = new char[24];
+        Arrays.fill(fullwidth, '\uFF10');
+        TrelloId.high(new String(fullwidth));
+    }
+
+    /**
+     * Unit test to check if values put in {@link TrelloIdMap} are found after the map grew
+     *
+     */
+    @Test
+    public void testPutAndGet() {
+        TrelloIdMap map = new TrelloIdMap();
+        for (int i = 0; i < 5000; i++) {
+            String id = cardId(i);
+            assertEquals(TrelloIdMap.ABSENT, map.put(TrelloId.high(id), TrelloId.low(id), i));
+        }
+        assertEquals(5000, map.size());
+        for (int i = 0; i < 5000; i++) {
+            String id = cardId(i);
+            assertEquals(i, map.get(TrelloId.high(id), TrelloId.low(id)));
+        }
+        assertEquals(TrelloIdMap.ABSENT, map.get(TrelloId.high(CARD_ID), TrelloId.low(CARD_ID)));
+    }
+
+    /**
+     * Unit test to check if putting an existing key replaces its value
+     *
+     */
+    @Test
+    public void testPutReplacesValue() {
+        TrelloIdMap map = new TrelloIdMap();
+        map.put(TrelloId.high(CARD_ID), TrelloId.low(CARD_ID), 1);
+        assertEquals(1, map.put(TrelloId.high(CARD_ID), TrelloId.low(CARD_ID), 2));
+        assertEquals(2, map.get(TrelloId.high(CARD_ID), TrelloId.low(CARD_ID)));
+        assertEquals(1, map.size());
+    }
+}
@@ -43,4 +43,11 @@ public class UnrecognizedResponseExceptionTest {
         assertEquals(e.getCause(), cause);
     }
     
+    @Test
+    public void testStacklessConstructor() {
+        UnrecognizedResponseException e = new UnrecognizedResponseException("some exception message", null, false);
+        assertEquals(e.getMessage(), "some exception message");
+        assertEquals(e.getStackTrace().length, 0);
+    }
+    
 }